@@ -0,0 +1,78 @@
+package com.builder.userexample.client;
+
+import com.builder.userexample.analytics.UserColumnSnapshot;
+import com.builder.userexample.domain.StdUser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a population wide "completion ratio per course" report computed from the typed views, the way reporting
+ * jobs iterate users, against the same report from a {@link UserColumnSnapshot}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserAnalyticsBenchmark {
+
+    @Param({"10000", "100000"})
+    public int population;
+
+    private List<StdUser> users;
+    private UserColumnSnapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        final ObjectMapper mapper = new ObjectMapper();
+        final TrainingCourse[] courses = TrainingCourse.values();
+        users = new ArrayList<>(population);
+        for (int i = 0; i < population; i++) {
+            final String[] completed = new String[i % (courses.length + 1)];
+            for (int j = 0; j < completed.length; j++) {
+                completed[j] = courses[j].name();
+            }
+            users.add(UserFixtures.stdUser(mapper, UserFixtures.stdUserJson("bench-user-" + i, "TRAINING_COURSES", completed, 0)));
+        }
+        snapshot = UserColumnSnapshot.of(users);
+    }
+
+    @Benchmark
+    public double[] viewScan() {
+        final TrainingCourse[] courses = TrainingCourse.values();
+        final double[] ratios = new double[courses.length];
+        for (final StdUser user : users) {
+            final UserWithTrainingCompleted view = UserWithTrainingCompleted.create(user);
+            for (final TrainingCourse course : courses) {
+                if (view.getTrainingCompleted().contains(course.name())) {
+                    ratios[course.ordinal()]++;
+                }
+            }
+        }
+        for (int i = 0; i < ratios.length; i++) {
+            ratios[i] /= users.size();
+        }
+        return ratios;
+    }
+
+    @Benchmark
+    public Map<TrainingCourse, Double> snapshotScan() {
+        return snapshot.completionRatios();
+    }
+}
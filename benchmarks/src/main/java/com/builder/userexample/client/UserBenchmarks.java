@@ -0,0 +1,26 @@
+package com.builder.userexample.client;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark uber jar, runs the JMH command line with the {@link GCProfiler} always attached so
+ * every result carries {@code gc.alloc.rate.norm} (bytes allocated per operation).
+ */
+public final class UserBenchmarks {
+
+    private UserBenchmarks() {
+    }
+
+    public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,65 @@
+package com.builder.userexample.client;
+
+import com.builder.userexample.domain.StdUser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link StdUser} to typed view conversion through {@code create(StdUser)}, both the bare wrap and the
+ * wrap followed by a read of the decoded values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserConversionBenchmark {
+
+    @Param({"0", "8", "64"})
+    public int fillerAttributes;
+
+    private StdUser stdUserWithRoles;
+    private StdUser stdUserWithTraining;
+
+    @Setup
+    public void setUp() {
+        final ObjectMapper mapper = new ObjectMapper();
+        stdUserWithRoles = UserFixtures.stdUser(mapper,
+                UserFixtures.stdUserJson("bench-user", "ROLES", UserFixtures.ROLES, fillerAttributes));
+        stdUserWithTraining = UserFixtures.stdUser(mapper,
+                UserFixtures.stdUserJson("bench-user", "TRAINING_COURSES", UserFixtures.TRAINING_COURSES, fillerAttributes));
+    }
+
+    @Benchmark
+    public UserWithRoles toUserWithRoles() {
+        return UserWithRoles.create(stdUserWithRoles);
+    }
+
+    @Benchmark
+    public Object toUserWithRolesAndRead() {
+        return UserWithRoles.create(stdUserWithRoles).roles.get(0);
+    }
+
+    @Benchmark
+    public UserWithTrainingCompleted toUserWithTrainingCompleted() {
+        return UserWithTrainingCompleted.create(stdUserWithTraining);
+    }
+
+    @Benchmark
+    public Object toUserWithTrainingCompletedAndRead() {
+        return UserWithTrainingCompleted.create(stdUserWithTraining).getTrainingCompleted().get(0);
+    }
+}
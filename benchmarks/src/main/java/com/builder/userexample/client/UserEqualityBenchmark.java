@@ -0,0 +1,64 @@
+package com.builder.userexample.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code equals}/{@code hashCode} on the typed views, including the comparison against a raw
+ * {@link com.builder.userexample.domain.StdUser} which compares the encoded attribute without a conversion.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserEqualityBenchmark {
+
+    private UserWithTrainingCompleted left;
+    private UserWithTrainingCompleted right;
+    private UserWithRoles userWithRoles;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        left = UserWithTrainingCompleted.create("bench-user").withTrainingCourses(UserFixtures.TRAINING_COURSES);
+        right = UserWithTrainingCompleted.create("bench-user").withTrainingCourses(UserFixtures.TRAINING_COURSES);
+        userWithRoles = UserWithRoles.create("bench-user").withRoles(UserFixtures.ROLES);
+    }
+
+    @Benchmark
+    public boolean trainingCompletedEquals() {
+        return left.equals(right);
+    }
+
+    @Benchmark
+    public boolean trainingCompletedEqualsStdUser() {
+        return left.equals(right.stdUser());
+    }
+
+    @Benchmark
+    public int trainingCompletedHashCode() {
+        return left.hashCode();
+    }
+
+    @Benchmark
+    public int userWithRolesHashCode() {
+        return userWithRoles.hashCode();
+    }
+
+    @Benchmark
+    public boolean userWithRolesEquals() {
+        return userWithRoles.equals(userWithRoles.stdUser());
+    }
+}
@@ -0,0 +1,62 @@
+package com.builder.userexample.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the static factory paths {@code create(userId).withRoles(...)} and
+ * {@code create(userId).withTrainingCourses(...)}, including reading the decoded values back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserFactoryBenchmark {
+
+    @Param({"1", "3"})
+    public int valueCount;
+
+    private String[] roles;
+    private String[] trainingCourses;
+
+    @Setup
+    public void setUp() {
+        roles = Arrays.copyOf(UserFixtures.ROLES, valueCount);
+        trainingCourses = Arrays.copyOf(UserFixtures.TRAINING_COURSES, valueCount);
+    }
+
+    @Benchmark
+    public UserWithRoles createWithRoles() throws JsonProcessingException {
+        return UserWithRoles.create("bench-user").withRoles(roles);
+    }
+
+    @Benchmark
+    public Object createWithRolesAndRead() throws JsonProcessingException {
+        return UserWithRoles.create("bench-user").withRoles(roles).roles.get(0);
+    }
+
+    @Benchmark
+    public UserWithTrainingCompleted createWithTrainingCourses() throws JsonProcessingException {
+        return UserWithTrainingCompleted.create("bench-user").withTrainingCourses(trainingCourses);
+    }
+
+    @Benchmark
+    public Object createWithTrainingCoursesAndRead() throws JsonProcessingException {
+        return UserWithTrainingCompleted.create("bench-user").withTrainingCourses(trainingCourses).getTrainingCompleted().get(0);
+    }
+}
@@ -0,0 +1,44 @@
+package com.builder.userexample.client;
+
+import com.builder.userexample.domain.StdUser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.StringJoiner;
+
+/**
+ * Builds the JSON documents used as benchmark input, the attribute map is padded with filler entries so the cost of
+ * carrying unrelated attributes can be measured.
+ */
+final class UserFixtures {
+
+    static final String[] ROLES = {"USER", "DEV", "ADMIN"};
+    static final String[] TRAINING_COURSES = {"COURSE1", "COURSE2", "COURSE3"};
+
+    private UserFixtures() {
+    }
+
+    /**
+     * A {@link StdUser} JSON document holding {@code key} plus {@code fillerCount} additional attributes
+     */
+    static String stdUserJson(final String userId, final String key, final String[] values, final int fillerCount) {
+        final StringJoiner list = new StringJoiner(",", "[", "]"); // no values is "[]"
+        for (final String value : values) {
+            list.add("\\\"" + value + "\\\"");
+        }
+        final StringJoiner attributes = new StringJoiner(",", "{", "}");
+        attributes.add("\"" + key + "\":\"" + list + "\"");
+        for (int i = 0; i < fillerCount; i++) {
+            attributes.add("\"ATTRIBUTE_" + i + "\":\"value-" + i + "\"");
+        }
+        return "{\"user_id\":\"" + userId + "\",\"attributes\":" + attributes + "}";
+    }
+
+    static StdUser stdUser(final ObjectMapper mapper, final String json) {
+        try {
+            return mapper.readValue(json, StdUser.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid benchmark fixture", e);
+        }
+    }
+}
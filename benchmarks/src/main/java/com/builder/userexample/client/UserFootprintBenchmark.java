@@ -0,0 +1,60 @@
+package com.builder.userexample.client;
+
+import com.builder.userexample.domain.AttributeMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the heap taken by an attributes collection, everything allocated here is retained by the user holding it so
+ * {@code gc.alloc.rate.norm} is the per user footprint of the collection (the shared key and value strings excluded).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserFootprintBenchmark {
+
+    @Param({"1", "2", "8"})
+    public int attributeCount;
+
+    private Map<String, String> source;
+
+    @Setup
+    public void setUp() {
+        source = new LinkedHashMap<>();
+        source.put("ROLES", "[\"DEV\"]");
+        for (int i = 1; i < attributeCount; i++) {
+            source.put("ATTRIBUTE_" + i, "value-" + i);
+        }
+    }
+
+    /**
+     * The collection {@code StdUser} used to hold
+     */
+    @Benchmark
+    public Map<String, String> unmodifiableHashMap() {
+        return Collections.unmodifiableMap(new HashMap<>(source));
+    }
+
+    @Benchmark
+    public Map<String, String> attributeMap() {
+        return AttributeMap.copyOf(source);
+    }
+}
@@ -0,0 +1,122 @@
+package com.builder.userexample.client;
+
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.json.UserJson;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Jackson marshalling of the {@code {"userWithRoles":{...}}} and {@code {"userWithTrainingCompleted":{...}}}
+ * envelopes and of the bare {@link StdUser} used in the multi staged message flow, for growing attribute maps.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserJsonBenchmark {
+
+    @Param({"0", "8", "64"})
+    public int fillerAttributes;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private String stdUserWithRolesJson;
+    private String stdUserWithTrainingJson;
+    private String userWithRolesJson;
+    private String userWithTrainingJson;
+    private UserWithRoles userWithRoles;
+    private UserWithTrainingCompleted userWithTraining;
+    private StdUser stdUser;
+    private byte[] stdUserBytes;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        stdUserWithRolesJson = UserFixtures.stdUserJson("bench-user", "ROLES", UserFixtures.ROLES, fillerAttributes);
+        stdUserWithTrainingJson = UserFixtures.stdUserJson("bench-user", "TRAINING_COURSES", UserFixtures.TRAINING_COURSES, fillerAttributes);
+        userWithRolesJson = "{\"userWithRoles\":" + stdUserWithRolesJson + "}";
+        userWithTrainingJson = "{\"userWithTrainingCompleted\":" + stdUserWithTrainingJson + "}";
+
+        userWithRoles = mapper.readValue(userWithRolesJson, UserWithRoles.class);
+        userWithTraining = mapper.readValue(userWithTrainingJson, UserWithTrainingCompleted.class);
+        stdUser = UserFixtures.stdUser(mapper, stdUserWithRolesJson);
+        stdUserBytes = stdUserWithRolesJson.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String serializeUserWithRoles() throws JsonProcessingException {
+        return mapper.writeValueAsString(userWithRoles);
+    }
+
+    @Benchmark
+    public UserWithRoles deserializeUserWithRoles() throws JsonProcessingException {
+        return mapper.readValue(userWithRolesJson, UserWithRoles.class);
+    }
+
+    @Benchmark
+    public String serializeUserWithTrainingCompleted() throws JsonProcessingException {
+        return mapper.writeValueAsString(userWithTraining);
+    }
+
+    @Benchmark
+    public Object deserializeUserWithTrainingCompletedAndRead() throws JsonProcessingException {
+        return mapper.readValue(userWithTrainingJson, UserWithTrainingCompleted.class).getTrainingCompleted();
+    }
+
+    @Benchmark
+    public String serializeStdUser() throws JsonProcessingException {
+        return mapper.writeValueAsString(stdUser);
+    }
+
+    @Benchmark
+    public StdUser deserializeStdUser() throws JsonProcessingException {
+        return mapper.readValue(stdUserWithRolesJson, StdUser.class);
+    }
+
+    @Benchmark
+    public byte[] serializeStdUserBytes() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(stdUser);
+    }
+
+    @Benchmark
+    public byte[] serializeStdUserBytesShared() throws IOException {
+        return UserJson.toBytes(stdUser);
+    }
+
+    /**
+     * Written into a reused direct buffer, what remains allocated is the serialization itself
+     */
+    @Benchmark
+    public int serializeStdUserToBuffer() throws IOException {
+        buffer.clear();
+        return UserJson.write(stdUser, buffer);
+    }
+
+    @Benchmark
+    public StdUser deserializeStdUserBytes() throws IOException {
+        return mapper.readValue(stdUserBytes, StdUser.class);
+    }
+
+    @Benchmark
+    public StdUser deserializeStdUserBytesShared() throws IOException {
+        return UserJson.read(stdUserBytes, StdUser.class);
+    }
+}
@@ -0,0 +1,75 @@
+package com.builder.userexample.client;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.HdrHistogram.Histogram;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the duration of every stop the world collection while open, from the notifications the JVM sends at the
+ * end of each collection. Service and load generator share the JVM, so the pauses hit both.
+ */
+final class GcPauses implements NotificationListener, AutoCloseable {
+
+    private final Histogram pausesMillis = new Histogram(3);
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+
+    private GcPauses() {
+    }
+
+    static GcPauses record() {
+        final GcPauses pauses = new GcPauses();
+        for (final GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                ((NotificationEmitter) collector).addNotificationListener(pauses, null, null);
+                pauses.emitters.add((NotificationEmitter) collector);
+            }
+        }
+        return pauses;
+    }
+
+    @Override
+    public void handleNotification(final Notification notification, final Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        final GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        final String name = info.getGcName();
+        if (name.contains("Cycles") || name.contains("Concurrent")) {
+            return; // ZGC, Shenandoah and G1 report their concurrent phases through these, they do not stop the application
+        }
+        synchronized (pausesMillis) {
+            pausesMillis.recordValue(info.getGcInfo().getDuration());
+        }
+    }
+
+    /**
+     * Stops recording, the returned histogram holds the pauses seen so far in milliseconds
+     */
+    Histogram stop() {
+        close();
+        synchronized (pausesMillis) {
+            return pausesMillis.copy();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (final NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                // already removed
+            }
+        }
+        emitters.clear();
+    }
+}
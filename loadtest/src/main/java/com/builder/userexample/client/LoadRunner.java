@@ -0,0 +1,162 @@
+package com.builder.userexample.client;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a numbered sequence of operations on a fixed number of threads and records the latency of each.
+ * <p>
+ * Without a target rate every thread issues its next operation as soon as the previous one completes. With a rate
+ * operation {@code i} is due at {@code start + i / rate} and its latency is measured from that point, so time spent
+ * queueing behind a stalled service counts against it instead of being hidden by the generator slowing down.
+ */
+final class LoadRunner {
+
+    /**
+     * One operation of a scenario, returns whether it succeeded
+     */
+    interface Operation {
+        boolean run(int index) throws Exception;
+    }
+
+    private final int threads;
+    private final double ratePerSecond;
+
+    /**
+     * @param ratePerSecond operations per second across all threads, {@code 0} to run closed loop
+     */
+    LoadRunner(final int threads, final double ratePerSecond) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.threads = threads;
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    Result run(final String scenario, final int operations, final Operation operation) throws InterruptedException {
+        final ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "load-" + scenario);
+            thread.setDaemon(true);
+            return thread;
+        });
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicLong errors = new AtomicLong();
+        final long intervalNanos = ratePerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond) : 0L;
+        final List<Future<Histogram>> workers = new ArrayList<>(threads);
+        final GcPauses gcPauses = GcPauses.record();
+        final long start = System.nanoTime();
+        try {
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    final Histogram latency = new Histogram(3);
+                    int index;
+                    while ((index = next.getAndIncrement()) < operations) {
+                        long begin = System.nanoTime();
+                        if (intervalNanos > 0) {
+                            final long due = start + index * intervalNanos;
+                            while (begin < due) {
+                                LockSupport.parkNanos(due - begin);
+                                begin = System.nanoTime();
+                            }
+                            begin = due;
+                        }
+                        boolean ok;
+                        try {
+                            ok = operation.run(index);
+                        } catch (Exception e) {
+                            ok = false;
+                        }
+                        latency.recordValue(System.nanoTime() - begin);
+                        if (!ok) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    return latency;
+                }));
+            }
+            final Histogram latency = new Histogram(3);
+            for (final Future<Histogram> worker : workers) {
+                latency.add(worker.get());
+            }
+            return new Result(scenario, operations, errors.get(), System.nanoTime() - start, latency, gcPauses.stop());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Load thread of " + scenario + " failed", e.getCause());
+        } finally {
+            gcPauses.close();
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Outcome of one scenario, latencies in nanoseconds and GC pauses in milliseconds
+     */
+    static final class Result {
+        final String scenario;
+        final long operations;
+        final long errors;
+        final long elapsedNanos;
+        final Histogram latency;
+        final Histogram gcPauses;
+
+        Result(final String scenario, final long operations, final long errors, final long elapsedNanos,
+               final Histogram latency, final Histogram gcPauses) {
+            this.scenario = scenario;
+            this.operations = operations;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.latency = latency;
+            this.gcPauses = gcPauses;
+        }
+
+        double throughput() {
+            return operations * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        double p99Millis() {
+            return latency.getValueAtPercentile(99.0) / 1e6;
+        }
+
+        long maxGcPauseMillis() {
+            return gcPauses.getTotalCount() == 0 ? 0L : gcPauses.getMaxValue();
+        }
+
+        void print(final PrintStream out) {
+            out.printf("%-14s %9d ops %6d errors %10.1f ops/s  latency us p50 %9.1f p90 %9.1f p99 %9.1f p99.9 %9.1f max %9.1f"
+                            + "  gc %4d pauses %6d ms total %5d ms max%n",
+                    scenario, operations, errors, throughput(),
+                    micros(50.0), micros(90.0), micros(99.0), micros(99.9), latency.getMaxValue() / 1e3,
+                    gcPauses.getTotalCount(), total(gcPauses), maxGcPauseMillis());
+        }
+
+        /**
+         * The full percentile distribution in microseconds, in the format the HdrHistogram plotter reads
+         */
+        void printDistribution(final PrintStream out) {
+            latency.outputPercentileDistribution(out, 1e3);
+        }
+
+        private double micros(final double percentile) {
+            return latency.getValueAtPercentile(percentile) / 1e3;
+        }
+
+        private static long total(final Histogram histogram) {
+            long total = 0L;
+            for (final HistogramIterationValue value : histogram.recordedValues()) {
+                total += value.getValueIteratedTo() * value.getCountAtValueIteratedTo();
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.builder.userexample.client;
+
+import com.builder.userexample.UserExampleApplication;
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.json.UserJson;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Boots {@link UserExampleApplication} on a free local port, loads it with a synthetic {@link UserPopulation} and
+ * reports throughput, latency percentiles and GC pauses per scenario:
+ * <ul>
+ * <li>{@code import} PUTs every user of the population once</li>
+ * <li>{@code lookup} GETs random users, rotating through the {@code StdUser}, roles and training endpoints</li>
+ * <li>{@code serialization} round trips random users through {@link UserJson} as {@link UserWithRolesAndTraining}</li>
+ * <li>{@code export} streams the whole population from {@code /users/export}</li>
+ * </ul>
+ * Every scenario first runs once against a separate warm up population, only the second run is reported. The exit
+ * status is non zero when an operation failed or a {@code --max-*} gate was exceeded, so a release build can run it
+ * as is. Arguments other than the ones listed in {@link Options} are passed on to the service, e.g.
+ * {@code --userexample.web.mode=ASYNC}.
+ */
+public final class UserLoadTest {
+
+    private static final String[] LOOKUP_PATHS = {"", "/roles", "/training"};
+
+    private final Options options;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final String baseUri;
+    private final LoadRunner runner;
+
+    private UserLoadTest(final Options options, final int port) {
+        this.options = options;
+        this.baseUri = "http://localhost:" + port + "/users/";
+        this.runner = new LoadRunner(options.threads, options.rate);
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final Options options = Options.parse(args);
+        final List<String> serviceArgs = new ArrayList<>(options.serviceArgs);
+        if (serviceArgs.stream().noneMatch(arg -> arg.startsWith("--server.port="))) {
+            serviceArgs.add("--server.port=0");
+        }
+        final int status;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UserExampleApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .run(serviceArgs.toArray(new String[0]))) {
+            final int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            status = new UserLoadTest(options, port).run(System.out);
+        }
+        System.exit(status);
+    }
+
+    private int run(final PrintStream out) throws Exception {
+        out.printf("users %d, lookups %d, threads %d, rate %s, roles %s, courses %s, filler attributes %d, seed %d%n",
+                options.users, options.lookups, options.threads, options.rate > 0 ? options.rate + "/s" : "unbounded",
+                options.roles, options.courses, options.fillerAttributes, options.seed);
+
+        final List<StdUser> warmUp = UserPopulation.generate("warmup-", options.warmupUsers, options.roles, options.courses,
+                options.fillerAttributes, options.seed - 1);
+        if (!warmUp.isEmpty()) {
+            runAll(warmUp, options.warmupUsers, warmUp.size());
+        }
+
+        final List<StdUser> population = UserPopulation.generate("user-", options.users, options.roles, options.courses,
+                options.fillerAttributes, options.seed);
+        final List<LoadRunner.Result> results = runAll(population, options.lookups, warmUp.size() + population.size());
+
+        int status = 0;
+        for (final LoadRunner.Result result : results) {
+            result.print(out);
+            if (options.histograms != null) {
+                Files.createDirectories(options.histograms);
+                try (PrintStream file = new PrintStream(Files.newOutputStream(options.histograms.resolve(result.scenario + ".hgrm")),
+                        false, StandardCharsets.UTF_8)) {
+                    result.printDistribution(file);
+                }
+            }
+            status |= gate(out, result);
+        }
+        return status;
+    }
+
+    private List<LoadRunner.Result> runAll(final List<StdUser> users, final int lookups, final int storedUsers) throws Exception {
+        final List<LoadRunner.Result> results = new ArrayList<>();
+        final List<byte[]> bodies = new ArrayList<>(users.size());
+        for (final StdUser user : users) {
+            bodies.add(UserJson.toBytes(user)); // encoded up front, the import measures the service only
+        }
+        results.add(runner.run("import", users.size(), index -> {
+            final HttpRequest request = HttpRequest.newBuilder(URI.create(baseUri + users.get(index).userId))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofByteArray(bodies.get(index)))
+                    .build();
+            final int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            return status == 200 || status == 201;
+        }));
+
+        final int[] picks = picks(users.size(), lookups, options.seed);
+        results.add(runner.run("lookup", lookups, index -> {
+            final String path = users.get(picks[index]).userId + LOOKUP_PATHS[index % LOOKUP_PATHS.length];
+            final HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create(baseUri + path)).GET().build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            return response.statusCode() == 200;
+        }));
+
+        results.add(runner.run("serialization", lookups, index -> {
+            final StdUser user = users.get(picks[index]);
+            final byte[] json = UserJson.toBytes(UserWithRolesAndTraining.create(user));
+            return UserJson.read(json, UserWithRolesAndTraining.class).userId.equals(user.userId);
+        }));
+
+        results.add(runner.run("export", options.exports, index -> {
+            final HttpResponse<InputStream> response = client.send(
+                    HttpRequest.newBuilder(URI.create(baseUri + "export")).GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+            try (BufferedReader lines = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                long count = 0L;
+                while (lines.readLine() != null) {
+                    count++;
+                }
+                return response.statusCode() == 200 && count >= storedUsers;
+            }
+        }));
+        return results;
+    }
+
+    /**
+     * Uniformly drawn population indexes for the lookups, shared by the lookup and serialization scenarios
+     */
+    private static int[] picks(final int users, final int lookups, final long seed) {
+        final SplittableRandom random = new SplittableRandom(seed + 1);
+        final int[] picks = new int[lookups];
+        for (int i = 0; i < lookups; i++) {
+            picks[i] = random.nextInt(users);
+        }
+        return picks;
+    }
+
+    private int gate(final PrintStream out, final LoadRunner.Result result) {
+        int status = 0;
+        if (result.errors > 0) {
+            out.printf("FAILED %s: %d of %d operations failed%n", result.scenario, result.errors, result.operations);
+            status = 1;
+        }
+        if (options.maxP99Millis > 0 && result.p99Millis() > options.maxP99Millis) {
+            out.printf("FAILED %s: p99 latency %.2f ms exceeds %s ms%n", result.scenario, result.p99Millis(), options.maxP99Millis);
+            status = 1;
+        }
+        if (options.maxGcPauseMillis > 0 && result.maxGcPauseMillis() > options.maxGcPauseMillis) {
+            out.printf("FAILED %s: GC pause of %d ms exceeds %d ms%n", result.scenario, result.maxGcPauseMillis(), options.maxGcPauseMillis);
+            status = 1;
+        }
+        return status;
+    }
+
+    /**
+     * {@code --name=value} arguments of the load test, anything else is passed on to the service
+     */
+    static final class Options {
+        int users = 10_000;
+        int lookups = 100_000;
+        int exports = 5;
+        int warmupUsers = 2_000;
+        int threads = 8;
+        double rate = 0.0;
+        int fillerAttributes = 0;
+        long seed = 42L;
+        UserPopulation.Distribution<Role> roles = UserPopulation.Distribution.parse(Role.class, "USER:0.9,DEV:0.3,ADMIN:0.05");
+        UserPopulation.Distribution<TrainingCourse> courses = UserPopulation.Distribution.parse(TrainingCourse.class, "COURSE1:0.7,COURSE2:0.4,COURSE3:0.1");
+        Path histograms = null;
+        double maxP99Millis = 0.0;
+        long maxGcPauseMillis = 0L;
+        final List<String> serviceArgs = new ArrayList<>();
+
+        static Options parse(final String... args) {
+            final Options options = new Options();
+            for (final String arg : args) {
+                final int equals = arg.indexOf('=');
+                final String name = equals < 0 ? arg : arg.substring(0, equals);
+                final String value = equals < 0 ? null : arg.substring(equals + 1);
+                switch (name) {
+                    case "--users":
+                        options.users = Integer.parseInt(required(name, value));
+                        break;
+                    case "--lookups":
+                        options.lookups = Integer.parseInt(required(name, value));
+                        break;
+                    case "--exports":
+                        options.exports = Integer.parseInt(required(name, value));
+                        break;
+                    case "--warmup-users":
+                        options.warmupUsers = Integer.parseInt(required(name, value));
+                        break;
+                    case "--threads":
+                        options.threads = Integer.parseInt(required(name, value));
+                        break;
+                    case "--rate":
+                        options.rate = Double.parseDouble(required(name, value));
+                        break;
+                    case "--filler-attributes":
+                        options.fillerAttributes = Integer.parseInt(required(name, value));
+                        break;
+                    case "--seed":
+                        options.seed = Long.parseLong(required(name, value));
+                        break;
+                    case "--roles":
+                        options.roles = UserPopulation.Distribution.parse(Role.class, required(name, value));
+                        break;
+                    case "--courses":
+                        options.courses = UserPopulation.Distribution.parse(TrainingCourse.class, required(name, value));
+                        break;
+                    case "--histograms":
+                        options.histograms = Paths.get(required(name, value));
+                        break;
+                    case "--max-p99-ms":
+                        options.maxP99Millis = Double.parseDouble(required(name, value));
+                        break;
+                    case "--max-gc-pause-ms":
+                        options.maxGcPauseMillis = Long.parseLong(required(name, value));
+                        break;
+                    default:
+                        options.serviceArgs.add(arg);
+                }
+            }
+            if (options.users < 1) {
+                throw new IllegalArgumentException("--users must be positive");
+            }
+            return options;
+        }
+
+        private static String required(final String name, final String value) {
+            if (value == null) {
+                throw new IllegalArgumentException(name + " requires a value, use " + name + "=...");
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.builder.userexample.client;
+
+import com.builder.userexample.domain.StdUser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic users built through the {@link UserWithRolesAndTraining} factory. Each role and course is held
+ * independently with its configured probability, the same seed always yields the same population.
+ */
+final class UserPopulation {
+
+    private UserPopulation() {
+    }
+
+    /**
+     * {@code size} users with ids {@code prefix0 .. prefix(size-1)}, padded with {@code fillerAttributes} unrelated
+     * attributes each
+     */
+    static List<StdUser> generate(final String prefix, final int size, final Distribution<Role> roles,
+                                  final Distribution<TrainingCourse> courses, final int fillerAttributes, final long seed) {
+        final SplittableRandom random = new SplittableRandom(seed);
+        final List<StdUser> users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final UserWithRolesAndTraining user;
+            try {
+                user = UserWithRolesAndTraining.create(prefix + i)
+                        .withRoles(roles.sample(random))
+                        .withTrainingCourses(courses.sample(random));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Invalid synthetic user " + prefix + i, e);
+            }
+            users.add(fillerAttributes == 0 ? user.stdUser() : withFiller(user.asUserWithRoles(), fillerAttributes));
+        }
+        return Collections.unmodifiableList(users);
+    }
+
+    private static StdUser withFiller(UserWithRoles user, final int fillerAttributes) {
+        for (int i = 0; i < fillerAttributes; i++) {
+            user = user.withAttribute("ATTRIBUTE_" + i, "value-" + i);
+        }
+        return user.stdUser();
+    }
+
+    /**
+     * Per constant probabilities of an enum vocabulary, parsed from {@code NAME:probability} pairs separated by
+     * commas, e.g. {@code USER:0.9,DEV:0.3,ADMIN:0.05}. Constants which are not listed are never sampled.
+     */
+    static final class Distribution<E extends Enum<E>> {
+
+        private final Map<E, Double> probabilities;
+
+        private Distribution(final Map<E, Double> probabilities) {
+            this.probabilities = probabilities;
+        }
+
+        static <E extends Enum<E>> Distribution<E> parse(final Class<E> vocabulary, final String spec) {
+            final Map<E, Double> probabilities = new EnumMap<>(vocabulary);
+            for (final String pair : spec.split(",")) {
+                if (pair.isBlank()) {
+                    continue;
+                }
+                final int colon = pair.indexOf(':');
+                if (colon < 0) {
+                    throw new IllegalArgumentException("Expected NAME:probability but got '" + pair + "'");
+                }
+                final double probability = Double.parseDouble(pair.substring(colon + 1).trim());
+                if (probability < 0.0 || probability > 1.0) {
+                    throw new IllegalArgumentException("Probability of " + pair + " is not within [0, 1]");
+                }
+                probabilities.put(Enum.valueOf(vocabulary, pair.substring(0, colon).trim()), probability);
+            }
+            return new Distribution<>(probabilities);
+        }
+
+        /**
+         * The names of the constants drawn for one user
+         */
+        String[] sample(final SplittableRandom random) {
+            final List<String> names = new ArrayList<>(probabilities.size());
+            probabilities.forEach((constant, probability) -> {
+                if (random.nextDouble() < probability) {
+                    names.add(constant.name());
+                }
+            });
+            return names.toArray(new String[0]);
+        }
+
+        @Override
+        public String toString() {
+            return probabilities.toString();
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.builder.userexample;
 
+import com.builder.userexample.json.UserJson;
+import com.builder.userexample.repository.UserRepository;
+import com.fasterxml.jackson.databind.Module;
 import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
 public class UserExampleApplication {
@@ -11,4 +15,18 @@ public class UserExampleApplication {
         new SpringApplicationBuilder(UserExampleApplication.class).web(WebApplicationType.SERVLET)
                 .run(args);
     }
+
+    @Bean
+    public UserRepository userRepository() {
+        return new UserRepository();
+    }
+
+    /**
+     * Picked up by Spring Boot's Jackson auto-configuration so responses use the same user serializers as
+     * {@link UserJson}
+     */
+    @Bean
+    public Module userJsonModule() {
+        return UserJson.module();
+    }
 }
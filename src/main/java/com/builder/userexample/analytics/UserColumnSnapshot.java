@@ -0,0 +1,227 @@
+package com.builder.userexample.analytics;
+
+import com.builder.userexample.client.Role;
+import com.builder.userexample.client.TrainingCourse;
+import com.builder.userexample.client.UserWithRoles;
+import com.builder.userexample.client.UserWithTrainingCompleted;
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.domain.VocabularySet;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable off-heap copy of a user population laid out as columns: a userId dictionary (offsets into one block of
+ * UTF-8 bytes) and one {@code long} bitmask per row for roles and for completed training courses, the bit positions
+ * being the {@link Role} and {@link TrainingCourse} ordinals as in {@link VocabularySet#mask()}.
+ * <p>
+ * Attributes are decoded once while building, scans afterwards are tight loops over primitive columns which never
+ * touch the heap or the original users. Rows keep the iteration order of the source collection. Instances are safe to
+ * share between threads, the direct buffers are released when the snapshot becomes unreachable.
+ */
+public final class UserColumnSnapshot {
+
+    private final int size;
+    private final IntBuffer userIdOffsets; // size + 1 entries, row i spans [offsets[i], offsets[i + 1])
+    private final ByteBuffer userIdBytes;
+    private final LongBuffer roleMasks;
+    private final LongBuffer courseMasks;
+
+    private UserColumnSnapshot(final int size, final IntBuffer userIdOffsets, final ByteBuffer userIdBytes,
+                               final LongBuffer roleMasks, final LongBuffer courseMasks) {
+        this.size = size;
+        this.userIdOffsets = userIdOffsets;
+        this.userIdBytes = userIdBytes;
+        this.roleMasks = roleMasks;
+        this.courseMasks = courseMasks;
+    }
+
+    /**
+     * Decodes the roles and training courses of every user into a new snapshot
+     */
+    public static UserColumnSnapshot of(final Collection<? extends StdUser> users) {
+        final int size = users.size();
+        final IntBuffer userIdOffsets = allocate((size + 1) * Integer.BYTES).asIntBuffer();
+        final LongBuffer roleMasks = allocate(size * Long.BYTES).asLongBuffer();
+        final LongBuffer courseMasks = allocate(size * Long.BYTES).asLongBuffer();
+        final List<byte[]> userIds = new ArrayList<>(size);
+        int offset = 0;
+        int row = 0;
+        for (final StdUser user : users) {
+            final byte[] userId = user.userId.getBytes(StandardCharsets.UTF_8);
+            userIds.add(userId);
+            userIdOffsets.put(row, offset);
+            roleMasks.put(row, UserWithRoles.create(user).roleSet().mask());
+            courseMasks.put(row, UserWithTrainingCompleted.create(user).trainingCompletedSet().mask());
+            offset = Math.addExact(offset, userId.length);
+            row++;
+        }
+        userIdOffsets.put(size, offset);
+        final ByteBuffer userIdBytes = allocate(offset);
+        for (final byte[] userId : userIds) {
+            userIdBytes.put(userId);
+        }
+        return new UserColumnSnapshot(size, userIdOffsets, userIdBytes.flip(), roleMasks, courseMasks);
+    }
+
+    private static ByteBuffer allocate(final int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String userId(final int row) {
+        final int from = userIdOffsets.get(row);
+        final byte[] bytes = new byte[userIdOffsets.get(row + 1) - from];
+        userIdBytes.duplicate().position(from).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public VocabularySet<Role> roles(final int row) {
+        return VocabularySet.of(Role.class, roleMasks.get(row));
+    }
+
+    public VocabularySet<TrainingCourse> trainingCompleted(final int row) {
+        return VocabularySet.of(TrainingCourse.class, courseMasks.get(row));
+    }
+
+    /**
+     * Number of users holding all of {@code roles}, none for an empty {@code roles} as in
+     * {@link com.builder.userexample.repository.UserRepository#findByRole(Role...)}
+     */
+    public int countByRole(final Role... roles) {
+        return countMatching(roleMasks, VocabularySet.of(Role.class, roles).mask());
+    }
+
+    /**
+     * Number of users who completed all of {@code trainingCourses}, none for an empty {@code trainingCourses}
+     */
+    public int countByTrainingCourse(final TrainingCourse... trainingCourses) {
+        return countMatching(courseMasks, VocabularySet.of(TrainingCourse.class, trainingCourses).mask());
+    }
+
+    /**
+     * Number of users holding {@code role} who completed {@code trainingCourse}
+     */
+    public int countByRoleAndTrainingCourse(final Role role, final TrainingCourse trainingCourse) {
+        final int roleShift = role.ordinal();
+        final int courseShift = trainingCourse.ordinal();
+        int count = 0;
+        for (int row = 0; row < size; row++) { // branch free, both columns are read in lock step
+            count += (int) (roleMasks.get(row) >>> roleShift & courseMasks.get(row) >>> courseShift & 1L);
+        }
+        return count;
+    }
+
+    /**
+     * Users per role, computed in a single pass over the role column
+     */
+    public Map<Role, Integer> countPerRole() {
+        return histogram(Role.class, roleMasks);
+    }
+
+    /**
+     * Users per completed training course, computed in a single pass over the course column
+     */
+    public Map<TrainingCourse, Integer> countPerTrainingCourse() {
+        return histogram(TrainingCourse.class, courseMasks);
+    }
+
+    /**
+     * Share of all users who completed each course, {@code 0} for an empty snapshot
+     */
+    public Map<TrainingCourse, Double> completionRatios() {
+        final Map<TrainingCourse, Double> ratios = new EnumMap<>(TrainingCourse.class);
+        countPerTrainingCourse().forEach((course, count) -> ratios.put(course, size == 0 ? 0.0 : (double) count / size));
+        return ratios;
+    }
+
+    /**
+     * Share of the users holding {@code role} who completed each course, {@code 0} when nobody holds the role
+     */
+    public Map<TrainingCourse, Double> completionRatios(final Role role) {
+        final long roleBit = VocabularySet.bit(role);
+        final int[] counts = new int[TrainingCourse.values().length];
+        int holders = 0;
+        for (int row = 0; row < size; row++) {
+            if ((roleMasks.get(row) & roleBit) != 0L) {
+                holders++;
+                addBits(counts, courseMasks.get(row));
+            }
+        }
+        final Map<TrainingCourse, Double> ratios = new EnumMap<>(TrainingCourse.class);
+        for (final TrainingCourse course : TrainingCourse.values()) {
+            ratios.put(course, holders == 0 ? 0.0 : (double) counts[course.ordinal()] / holders);
+        }
+        return ratios;
+    }
+
+    /**
+     * Rows of the users holding all of {@code roles}, in snapshot order, none for an empty {@code roles}
+     */
+    public int[] rowsByRole(final Role... roles) {
+        return matchingRows(roleMasks, VocabularySet.of(Role.class, roles).mask());
+    }
+
+    /**
+     * Rows of the users who completed all of {@code trainingCourses}, in snapshot order, none for an empty
+     * {@code trainingCourses}
+     */
+    public int[] rowsByTrainingCourse(final TrainingCourse... trainingCourses) {
+        return matchingRows(courseMasks, VocabularySet.of(TrainingCourse.class, trainingCourses).mask());
+    }
+
+    private int countMatching(final LongBuffer masks, final long mask) {
+        if (mask == 0L) {
+            return 0; // an empty filter matches nobody, as in the repository's index queries
+        }
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if ((masks.get(row) & mask) == mask) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int[] matchingRows(final LongBuffer masks, final long mask) {
+        final int[] rows = new int[countMatching(masks, mask)];
+        int next = 0;
+        for (int row = 0; next < rows.length; row++) {
+            if ((masks.get(row) & mask) == mask) {
+                rows[next++] = row;
+            }
+        }
+        return rows;
+    }
+
+    private <E extends Enum<E>> Map<E, Integer> histogram(final Class<E> type, final LongBuffer masks) {
+        final E[] constants = type.getEnumConstants();
+        final int[] counts = new int[constants.length];
+        for (int row = 0; row < size; row++) {
+            addBits(counts, masks.get(row));
+        }
+        final Map<E, Integer> histogram = new EnumMap<>(type);
+        for (final E constant : constants) {
+            histogram.put(constant, counts[constant.ordinal()]);
+        }
+        return histogram;
+    }
+
+    private static void addBits(final int[] counts, long mask) {
+        while (mask != 0L) {
+            counts[Long.numberOfTrailingZeros(mask)]++;
+            mask &= mask - 1;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.builder.userexample.cache;
+
+import com.builder.userexample.client.UserWithRoles;
+import com.builder.userexample.client.UserWithTrainingCompleted;
+import com.builder.userexample.domain.StdUser;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of decoded typed views keyed by {@code userId}.
+ * <p>
+ * An entry is only returned for a {@link StdUser} with the same attributes as the one it was decoded from, a changed
+ * user is a miss and replaces the entry. Entries expire {@code ttl} after they were decoded. The cache is split into
+ * independently locked segments, each an LRU ordered map guarded by a TinyLFU style admission filter: when a segment
+ * is full a newly decoded view only displaces the least recently used entry if it has been requested more often, so a
+ * one off scan over the population cannot flush the hot users.
+ */
+public final class TypedViewCache<V> {
+
+    private static final int SEGMENTS = 16; // power of two, fewer for a maximumSize below it
+
+    private final Function<StdUser, V> decoder;
+    private final long ttlNanos;
+    private final LongSupplier ticker;
+    private final Segment<V>[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private TypedViewCache(final Function<StdUser, V> decoder, final long maximumSize, final Duration ttl, final LongSupplier ticker) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.decoder = decoder;
+        this.ttlNanos = ttl.toNanos();
+        this.ticker = ticker;
+        @SuppressWarnings("unchecked")
+        final Segment<V>[] segments = (Segment<V>[]) new Segment<?>[(int) Math.min(SEGMENTS, Long.highestOneBit(maximumSize))];
+        this.segments = segments;
+        final long segmentSize = maximumSize / segments.length;
+        final long remainder = maximumSize % segments.length;
+        for (int i = 0; i < segments.length; i++) { // capacities add up to maximumSize
+            segments[i] = new Segment<>((int) Math.min(Integer.MAX_VALUE, segmentSize + (i < remainder ? 1 : 0)));
+        }
+    }
+
+    /**
+     * Static factory method
+     */
+    public static <V> TypedViewCache<V> create(final Function<StdUser, V> decoder, final long maximumSize, final Duration ttl) {
+        return new TypedViewCache<>(decoder, maximumSize, ttl, System::nanoTime);
+    }
+
+    static <V> TypedViewCache<V> create(final Function<StdUser, V> decoder, final long maximumSize, final Duration ttl, final LongSupplier ticker) {
+        return new TypedViewCache<>(decoder, maximumSize, ttl, ticker);
+    }
+
+    /**
+     * Static factory method for {@link UserWithRoles} views
+     */
+    public static TypedViewCache<UserWithRoles> forUsersWithRoles(final long maximumSize, final Duration ttl) {
+        return create(UserWithRoles::create, maximumSize, ttl);
+    }
+
+    /**
+     * Static factory method for {@link UserWithTrainingCompleted} views, the courses are decoded before the view is
+     * cached
+     */
+    public static TypedViewCache<UserWithTrainingCompleted> forUsersWithTrainingCompleted(final long maximumSize, final Duration ttl) {
+        return create(user -> {
+            final UserWithTrainingCompleted view = UserWithTrainingCompleted.create(user);
+            view.getTrainingCompleted();
+            return view;
+        }, maximumSize, ttl);
+    }
+
+    /**
+     * @return the cached view of {@code user}, decoding and caching it on a miss
+     */
+    public V get(final StdUser user) {
+        final Segment<V> segment = segment(user.userId);
+        final long now = ticker.getAsLong();
+        synchronized (segment) {
+            final Entry<V> entry = segment.lookup(user.userId);
+            if (entry != null && now - entry.decodedAt < ttlNanos && entry.source.sameAttributes(user)) {
+                hits.increment();
+                return entry.view;
+            }
+        }
+        misses.increment();
+        final V view = decoder.apply(user);
+        synchronized (segment) {
+            evictions.add(segment.offer(user.userId, new Entry<>(user, view, now)));
+        }
+        return view;
+    }
+
+    public void invalidate(final String userId) {
+        final Segment<V> segment = segment(userId);
+        synchronized (segment) {
+            segment.entries.remove(userId);
+        }
+    }
+
+    public void invalidateAll() {
+        for (final Segment<V> segment : segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+            }
+        }
+    }
+
+    /**
+     * Drops expired entries, expired entries are otherwise only replaced when next requested or evicted
+     */
+    public void cleanUp() {
+        final long now = ticker.getAsLong();
+        for (final Segment<V> segment : segments) {
+            synchronized (segment) {
+                final Iterator<Entry<V>> entries = segment.entries.values().iterator();
+                while (entries.hasNext()) {
+                    if (now - entries.next().decodedAt >= ttlNanos) {
+                        entries.remove();
+                        evictions.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (final Segment<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private Segment<V> segment(final String userId) {
+        final int hash = userId.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * Point in time copy of the cache counters
+     */
+    public static final class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+
+        private Stats(final long hits, final long misses, final long evictions) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public double hitRate() {
+            final long requests = hits + misses;
+            return requests == 0 ? 1.0 : (double) hits / requests;
+        }
+
+        public String toString() {
+            return new java.util.StringJoiner(", ", Stats.class.getSimpleName() + "[", "]")
+                    .add("hits=" + hits)
+                    .add("misses=" + misses)
+                    .add("evictions=" + evictions)
+                    .add("hitRate=" + hitRate())
+                    .toString();
+        }
+    }
+
+    private static final class Entry<V> {
+        private final StdUser source;
+        private final V view;
+        private final long decodedAt;
+
+        private Entry(final StdUser source, final V view, final long decodedAt) {
+            this.source = source;
+            this.view = view;
+            this.decodedAt = decodedAt;
+        }
+    }
+
+    /**
+     * LRU ordered entries plus the frequency sketch used for admission, guarded by the segment's monitor
+     */
+    private static final class Segment<V> {
+        private final int capacity;
+        private final LinkedHashMap<String, Entry<V>> entries;
+        private final FrequencySketch sketch;
+
+        private Segment(final int capacity) {
+            this.capacity = capacity;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true);
+            this.sketch = new FrequencySketch(capacity);
+        }
+
+        private Entry<V> lookup(final String userId) {
+            sketch.increment(userId);
+            return entries.get(userId);
+        }
+
+        /**
+         * @return the number of entries evicted
+         */
+        private int offer(final String userId, final Entry<V> entry) {
+            if (entries.containsKey(userId) || entries.size() < capacity) {
+                entries.put(userId, entry);
+                return 0;
+            }
+            final Iterator<Map.Entry<String, Entry<V>>> eldest = entries.entrySet().iterator();
+            final String victim = eldest.next().getKey();
+            if (sketch.frequency(userId) > sketch.frequency(victim)) {
+                eldest.remove();
+                entries.put(userId, entry);
+                return 1;
+            }
+            return 0; // rejected, the candidate is colder than the entry it would displace
+        }
+    }
+
+    /**
+     * Count-min sketch of 4 bit counters which are halved periodically so old popularity fades
+     */
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final byte[] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(final int capacity) {
+            final int width = Math.max(16, Integer.highestOneBit((int) Math.min(1 << 24, capacity * 4L) - 1) << 1);
+            this.counters = new byte[width * DEPTH];
+            this.mask = width - 1;
+            this.sampleSize = Math.max(160, capacity * 10);
+        }
+
+        private void increment(final String key) {
+            final int hash = key.hashCode();
+            for (int i = 0; i < DEPTH; i++) {
+                final int index = index(hash, i);
+                if (counters[index] < 15) {
+                    counters[index]++;
+                }
+            }
+            if (++additions == sampleSize) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] >>= 1;
+                }
+                additions = 0;
+            }
+        }
+
+        private int frequency(final String key) {
+            final int hash = key.hashCode();
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < DEPTH; i++) {
+                frequency = Math.min(frequency, counters[index(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int index(final int hash, final int row) {
+            int h = hash * SEEDS[row];
+            h ^= h >>> 15;
+            return row * (mask + 1) + (h & mask);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.builder.userexample.change;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * The difference between two versions of a user as produced by {@link UserDiff}, small enough to ship instead of the
+ * whole user. {@code base} and {@code target} are the {@code attributesHash()} of the versions before and after, so a
+ * change applied to the wrong version is detected.
+ */
+public final class UserChange {
+
+    @JsonProperty("user_id")
+    public final String userId;
+    @JsonProperty("base")
+    public final int base;
+    @JsonProperty("target")
+    public final int target;
+    @JsonProperty("changes")
+    public final List<Entry> entries;
+
+    @JsonCreator
+    public UserChange(@JsonProperty("user_id") final String userId, @JsonProperty("base") final int base,
+                      @JsonProperty("target") final int target, @JsonProperty("changes") final List<Entry> entries) {
+        this.userId = Objects.requireNonNull(userId, "userId");
+        this.base = base;
+        this.target = target;
+        this.entries = entries == null ? Collections.emptyList() : Collections.unmodifiableList(entries);
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public enum Op {
+        /**
+         * Sets the attribute to {@code value}
+         */
+        @JsonProperty("set") SET,
+        /**
+         * Removes the attribute
+         */
+        @JsonProperty("remove") REMOVE,
+        /**
+         * Adds {@code values} to a multi valued attribute
+         */
+        @JsonProperty("add") ADD,
+        /**
+         * Removes {@code values} from a multi valued attribute
+         */
+        @JsonProperty("delete") DELETE
+    }
+
+    /**
+     * One attribute level or element level change
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Entry {
+        @JsonProperty("op")
+        public final Op op;
+        @JsonProperty("key")
+        public final String key;
+        @JsonProperty("value")
+        public final String value;
+        @JsonProperty("values")
+        public final List<String> values;
+
+        @JsonCreator
+        private Entry(@JsonProperty("op") final Op op, @JsonProperty("key") final String key,
+                      @JsonProperty("value") final String value, @JsonProperty("values") final List<String> values) {
+            this.op = Objects.requireNonNull(op, "op");
+            this.key = Objects.requireNonNull(key, "key");
+            this.value = value;
+            this.values = values;
+        }
+
+        public static Entry set(final String key, final String value) {
+            return new Entry(Op.SET, key, value, null);
+        }
+
+        public static Entry remove(final String key) {
+            return new Entry(Op.REMOVE, key, null, null);
+        }
+
+        public static Entry add(final String key, final List<String> values) {
+            return new Entry(Op.ADD, key, null, values);
+        }
+
+        public static Entry delete(final String key, final List<String> values) {
+            return new Entry(Op.DELETE, key, null, values);
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof Entry)) {
+                return false;
+            }
+            final Entry that = (Entry) object;
+            return op == that.op && key.equals(that.key) && Objects.equals(value, that.value) && Objects.equals(values, that.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(op, key, value, values);
+        }
+
+        @Override
+        public String toString() {
+            return op + " " + key + (value != null ? "=" + value : "") + (values != null ? " " + values : "");
+        }
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof UserChange)) {
+            return false;
+        }
+        final UserChange that = (UserChange) object;
+        return base == that.base && target == that.target && userId.equals(that.userId) && entries.equals(that.entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, base, target, entries);
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", UserChange.class.getSimpleName() + "[", "]")
+                .add("userId='" + userId + "'")
+                .add("base=" + base)
+                .add("target=" + target)
+                .add("changes=" + entries)
+                .toString();
+    }
+}
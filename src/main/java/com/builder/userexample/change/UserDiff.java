@@ -0,0 +1,194 @@
+package com.builder.userexample.change;
+
+import com.builder.userexample.client.UserWithRoles;
+import com.builder.userexample.client.UserWithTrainingCompleted;
+import com.builder.userexample.domain.AttributeType;
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.domain.TypedView;
+import com.builder.userexample.domain.VocabularySet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Computes {@link UserChange}s between two versions of a {@link StdUser} and applies them to rebuild the later version.
+ * <p>
+ * Attributes are compared by value. Attributes declared as an {@link AttributeType} to diff by element, by default
+ * {@link UserWithRoles#ROLES} and {@link UserWithTrainingCompleted#TRAINING_COURSES}, produce {@code add} and
+ * {@code delete} entries naming only the changed elements, provided re-encoding either value with the declared codec
+ * gives back the same string; otherwise, e.g. for values in another codec or holding unknown names, the whole value is
+ * set. Nodes applying element changes must therefore use the same codec as the node computing them.
+ */
+public final class UserDiff {
+
+    private static final UserDiff STANDARD = of(UserWithRoles.ROLES, UserWithTrainingCompleted.TRAINING_COURSES);
+
+    private final Map<String, AttributeType<?>> elementTypes;
+
+    private UserDiff(final Map<String, AttributeType<?>> elementTypes) {
+        this.elementTypes = elementTypes;
+    }
+
+    /**
+     * Diffs roles and training courses by element
+     */
+    public static UserDiff standard() {
+        return STANDARD;
+    }
+
+    public static UserDiff of(final AttributeType<?>... elementTypes) {
+        final Map<String, AttributeType<?>> types = new HashMap<>();
+        for (final AttributeType<?> type : elementTypes) {
+            types.put(type.key(), type);
+        }
+        return new UserDiff(Collections.unmodifiableMap(types));
+    }
+
+    /**
+     * @param before the previous version, {@code null} for a new user
+     */
+    public UserChange diff(final StdUser before, final StdUser after) {
+        if (before != null && !before.userId.equals(after.userId)) {
+            throw new IllegalArgumentException("cannot diff " + before.userId + " against " + after.userId);
+        }
+        final Map<String, String> previous = before == null ? Collections.emptyMap() : Attributes.of(before);
+        final Map<String, String> current = Attributes.of(after);
+        final List<UserChange.Entry> entries = new ArrayList<>();
+        if (!previous.equals(current)) {
+            previous.forEach((key, value) -> {
+                if (!current.containsKey(key)) {
+                    entries.add(UserChange.Entry.remove(key));
+                }
+            });
+            current.forEach((key, value) -> {
+                if (!previous.containsKey(key)) {
+                    entries.add(UserChange.Entry.set(key, value));
+                } else if (!Objects.equals(previous.get(key), value)) {
+                    final AttributeType<?> type = elementTypes.get(key);
+                    if (type == null || value == null || previous.get(key) == null || !diffElements(type, previous.get(key), value, entries)) {
+                        entries.add(UserChange.Entry.set(key, value));
+                    }
+                }
+            });
+        }
+        return new UserChange(after.userId, before == null ? 0 : before.attributesHash(), after.attributesHash(), entries);
+    }
+
+    /**
+     * Adds the element entries turning {@code before} into {@code after}, false when the result would not reproduce
+     * {@code after} exactly
+     */
+    private static <E extends Enum<E>> boolean diffElements(final AttributeType<E> type, final String before, final String after,
+                                                            final List<UserChange.Entry> entries) {
+        final VocabularySet<E> next = type.decode(after);
+        final VocabularySet<E> previous = type.decode(before);
+        if (!after.equals(type.encode(next)) || !before.equals(type.encode(previous))) {
+            return false;
+        }
+        final long previousMask = previous.mask();
+        final long added = next.mask() & ~previousMask;
+        final long removed = previousMask & ~next.mask();
+        if (added != 0L) {
+            entries.add(UserChange.Entry.add(type.key(), new ArrayList<>(VocabularySet.of(type.vocabulary(), added))));
+        }
+        if (removed != 0L) {
+            entries.add(UserChange.Entry.delete(type.key(), new ArrayList<>(VocabularySet.of(type.vocabulary(), removed))));
+        }
+        return true;
+    }
+
+    /**
+     * Rebuilds the later version, sharing unchanged attribute storage with {@code base}
+     *
+     * @param base the version the change was computed from, {@code null} for a new user
+     * @throws IllegalStateException when {@code base} is not that version or the result does not match the change
+     */
+    public StdUser apply(final StdUser base, final UserChange change) {
+        if (base != null && !base.userId.equals(change.userId)) {
+            throw new IllegalArgumentException("change for " + change.userId + " applied to " + base.userId);
+        }
+        StdUser user = base == null ? StdUser.create(change.userId) : base;
+        if (user.attributesHash() != change.base) {
+            throw new IllegalStateException("change for " + change.userId + " does not apply to this version");
+        }
+        for (final UserChange.Entry entry : change.entries) {
+            switch (entry.op) {
+                case SET:
+                    user = Attributes.with(user, entry.key, entry.value);
+                    break;
+                case REMOVE:
+                    user = Attributes.without(user, entry.key);
+                    break;
+                case ADD:
+                case DELETE:
+                    user = applyElements(elementType(entry.key), user, entry);
+                    break;
+                default:
+                    throw new IllegalStateException("unknown change " + entry.op);
+            }
+        }
+        if (user.attributesHash() != change.target) {
+            throw new IllegalStateException("change for " + change.userId + " did not reproduce the target version");
+        }
+        return user;
+    }
+
+    /**
+     * Applies a stream of consecutive changes
+     */
+    public StdUser applyAll(final StdUser base, final Iterable<UserChange> changes) {
+        StdUser user = base;
+        for (final UserChange change : changes) {
+            user = apply(user, change);
+        }
+        return user;
+    }
+
+    private AttributeType<?> elementType(final String key) {
+        final AttributeType<?> type = elementTypes.get(key);
+        if (type == null) {
+            throw new IllegalStateException(key + " is not diffed by element");
+        }
+        return type;
+    }
+
+    private static <E extends Enum<E>> StdUser applyElements(final AttributeType<E> type, final StdUser user, final UserChange.Entry entry) {
+        final long mask = VocabularySet.parseKnown(type.vocabulary(), entry.values).mask();
+        final long current = type.read(user).mask();
+        final long next = entry.op == UserChange.Op.ADD ? current | mask : current & ~mask;
+        return type.write(user, VocabularySet.of(type.vocabulary(), next));
+    }
+
+    /**
+     * Attribute map access to the users diffed, declaring no attributes of its own
+     */
+    private static final class Attributes extends TypedView<Attributes> {
+
+        private static final Declaration<Attributes> DECLARATION = Declaration.of(Attributes.class, Attributes::new);
+
+        private Attributes(final StdUser stdUser) {
+            super(stdUser);
+        }
+
+        @Override
+        protected Declaration<Attributes> declaration() {
+            return DECLARATION;
+        }
+
+        private static Map<String, String> of(final StdUser user) {
+            return new Attributes(user).attributes();
+        }
+
+        private static StdUser with(final StdUser user, final String key, final String value) {
+            return new Attributes(user).withAttribute(key, value).stdUser();
+        }
+
+        private static StdUser without(final StdUser user, final String key) {
+            return new Attributes(user).withoutAttribute(key).stdUser();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.builder.userexample.client;
+
+/**
+ * The roles a {@link UserWithRoles} may hold, the ordinal is the bit position in role masks
+ * so new constants must only be appended.
+ */
+public enum Role {
+    USER,
+    DEV,
+    ADMIN
+}
@@ -0,0 +1,11 @@
+package com.builder.userexample.client;
+
+/**
+ * The training courses a {@link UserWithTrainingCompleted} may have completed, the ordinal is the bit position in course masks
+ * so new constants must only be appended.
+ */
+public enum TrainingCourse {
+    COURSE1,
+    COURSE2,
+    COURSE3
+}
@@ -1,106 +1,137 @@
 package com.builder.userexample.client;
 
+import com.builder.userexample.domain.AttributeKeys;
+import com.builder.userexample.domain.AttributeType;
 import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.domain.TypedView;
 import com.builder.userexample.domain.User;
+import com.builder.userexample.domain.VocabularySet;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.util.*;
-import java.util.AbstractMap.SimpleImmutableEntry;
-import java.util.stream.Stream;
-
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
 
 /**
  * Implements {@link User} but contains a private instance of {@link StdUser} which is the primary source of state,
  * the public fields give external access to that.
  */
-public class UserWithRoles implements User {
-
-    private static final List<String> allowed = Stream.of("USER", "DEV", "ADMIN").collect(toList());
-    private static final String ROLE_KEY = "ROLES";
-    private static final ObjectMapper mapper = new ObjectMapper();
-
-    @JsonProperty("userWithRoles")
-    private final StdUser userWithRoles;
+public class UserWithRoles extends TypedView<UserWithRoles> {
 
-    @JsonIgnore
-    public final String userId;
-    @JsonIgnore
-    public final List<String> roles;
+    /**
+     * The roles attribute as stored on a {@link StdUser}
+     */
+    public static final AttributeType<Role> ROLES = AttributeType.of(AttributeKeys.ROLES, Role.class, "Invalid Role supplied");
+    private static final Declaration<UserWithRoles> DECLARATION = Declaration.of(UserWithRoles.class, UserWithRoles::new)
+            .attribute("roles", ROLES);
 
     /**
-     * This {@link Proxy} Class grants local access to protected elements within the {@link StdUser} instance
+     * Role names in {@link Role} ordinal order, backed by the shared {@link VocabularySet} for this combination. The
+     * roles of a converted {@link StdUser} are decoded on first access.
      */
-    private static class Proxy extends StdUser {
-        public Proxy(final String userId, final Map<String, String> attributes) {
-            super(userId, attributes);
-        }
-        public Proxy(final StdUser stdUser) {
-            super(stdUser);
-        }
-        public Map<String, String> getAttributes() {
-            return super.attributes;
-        }
-    }
+    @JsonIgnore
+    public final List<String> roles = new LazyRoles();
 
     @JsonCreator
     private UserWithRoles(@JsonProperty("userWithRoles") final StdUser userWithRoles) {
-        this.userWithRoles = userWithRoles;
-        this.userId = userWithRoles.userId;
-        this.roles = Collections.unmodifiableList(roleGen(new Proxy(userWithRoles).getAttributes()));
+        super(userWithRoles);
+    }
+
+    @JsonProperty("userWithRoles")
+    private StdUser userWithRoles() {
+        return stdUser();
     }
 
-    private UserWithRoles(final String userId, final Map<String, String> attributes) {
-        this.userWithRoles = new Proxy(userId, attributes);
-        this.userId = userId;
-        this.roles = Collections.unmodifiableList(roleGen(attributes));
+    @Override
+    protected Declaration<UserWithRoles> declaration() {
+        return DECLARATION;
     }
 
     /**
      * Grants access to the contained {@link StdUser} as a conversion utility
      */
+    @Override
     protected StdUser stdUser() {
-        return this.userWithRoles;
+        return super.stdUser();
+    }
+
+    /**
+     * The roles as a bitmask backed set
+     */
+    public VocabularySet<Role> roleSet() {
+        return get(ROLES);
+    }
+
+    public boolean hasRole(final Role role) {
+        return roleSet().contains(role);
+    }
+
+    public boolean hasRole(final String role) {
+        return roleSet().contains(role);
+    }
+
+    public boolean hasRoles(final Role... roles) {
+        return roleSet().containsAll(roles);
+    }
+
+    /**
+     * Copy on write update, the copy shares every other attribute with this user which is returned itself when it
+     * already holds the role
+     */
+    public UserWithRoles withAddedRole(final Role role) {
+        return withRoleSet(VocabularySet.of(Role.class, roleSet().mask() | VocabularySet.bit(role)));
+    }
+
+    /**
+     * Copy on write update, returns this user when it does not hold the role
+     */
+    public UserWithRoles withoutRole(final Role role) {
+        return withRoleSet(VocabularySet.of(Role.class, roleSet().mask() & ~VocabularySet.bit(role)));
     }
 
     /**
-     * Utility function
+     * Copy on write update replacing all roles, returns this user when they are unchanged
      */
-    private static List<String> roleGen(final Map<String, String> attributes) {
-        return Optional.ofNullable(attributes.get(ROLE_KEY)).map(val -> {
-            try {
-                return mapper.readValue(val, mapper.getTypeFactory().constructCollectionType(List.class, String.class));
-            } catch (JsonProcessingException e) {
-                return new ArrayList<String>();
-            }
-        }).orElseGet(ArrayList::new);
+    public UserWithRoles withRoleSet(final VocabularySet<Role> roleSet) {
+        return with(ROLES, roleSet);
     }
 
     /**
      * Static factory method
      */
     public static IRoles create(final String userId) {
-        return roles -> new UserWithRoles(userId, Stream.of(new SimpleImmutableEntry<>(ROLE_KEY,
-                mapper.writeValueAsString(Stream.of(roles)
-                        .peek(role -> Optional.of(allowed.contains(role)).filter(val -> val).orElseThrow(() -> new RuntimeException("Invalid Role supplied")))
-                        .collect(toList()))
-                )).collect(toMap(SimpleImmutableEntry::getKey, SimpleImmutableEntry::getValue)));
+        return roles -> DECLARATION.create(userId, roles);
     }
 
     /**
      * Conversion utility method
      */
     public static UserWithRoles create(final StdUser stdUser) {
-        return new UserWithRoles(stdUser);
+        return DECLARATION.convert(stdUser);
+    }
+
+    /**
+     * The {@link #roles}, decoding on first access
+     */
+    private final class LazyRoles extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(final int index) {
+            return roleSet().get(index);
+        }
+
+        @Override
+        public int size() {
+            return roleSet().size();
+        }
+
+        @Override
+        public boolean contains(final Object role) {
+            return roleSet().contains(role);
+        }
     }
 
     public interface IRoles {
         UserWithRoles withRoles(String... roles) throws JsonProcessingException;
     }
-
 }
@@ -0,0 +1,112 @@
+package com.builder.userexample.client;
+
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.domain.TypedView;
+import com.builder.userexample.domain.User;
+import com.builder.userexample.domain.VocabularySet;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Implements {@link User} over a single {@link StdUser} holding both roles and completed training courses, composed from
+ * the {@link UserWithRoles#ROLES} and {@link UserWithTrainingCompleted#TRAINING_COURSES} declarations. The attributes are
+ * decoded on first access and {@link #asUserWithRoles()} / {@link #asUserWithTrainingCompleted()} share the same
+ * {@link StdUser}.
+ */
+public class UserWithRolesAndTraining extends TypedView<UserWithRolesAndTraining> {
+
+    private static final Declaration<UserWithRolesAndTraining> DECLARATION = Declaration.of(UserWithRolesAndTraining.class,
+            UserWithRolesAndTraining::new)
+            .attribute("roles", UserWithRoles.ROLES)
+            .attribute("trainingCompleted", UserWithTrainingCompleted.TRAINING_COURSES);
+
+    @JsonCreator
+    private UserWithRolesAndTraining(@JsonProperty("userWithRolesAndTraining") final StdUser userWithRolesAndTraining) {
+        super(userWithRolesAndTraining);
+    }
+
+    @JsonProperty("userWithRolesAndTraining")
+    private StdUser userWithRolesAndTraining() {
+        return stdUser();
+    }
+
+    @Override
+    protected Declaration<UserWithRolesAndTraining> declaration() {
+        return DECLARATION;
+    }
+
+    public VocabularySet<Role> roleSet() {
+        return get(UserWithRoles.ROLES);
+    }
+
+    public VocabularySet<TrainingCourse> trainingCompletedSet() {
+        return get(UserWithTrainingCompleted.TRAINING_COURSES);
+    }
+
+    public boolean hasRole(final Role role) {
+        return roleSet().contains(role);
+    }
+
+    public boolean hasCompleted(final TrainingCourse trainingCourse) {
+        return trainingCompletedSet().contains(trainingCourse);
+    }
+
+    /**
+     * Copy on write update of the roles, the decoded courses are carried over
+     */
+    public UserWithRolesAndTraining withRoleSet(final VocabularySet<Role> roleSet) {
+        return with(UserWithRoles.ROLES, roleSet);
+    }
+
+    /**
+     * Copy on write update of the completed courses, the decoded roles are carried over
+     */
+    public UserWithRolesAndTraining withTrainingCompletedSet(final VocabularySet<TrainingCourse> trainingCompleted) {
+        return with(UserWithTrainingCompleted.TRAINING_COURSES, trainingCompleted);
+    }
+
+    /**
+     * The roles view of the same {@link StdUser}
+     */
+    public UserWithRoles asUserWithRoles() {
+        return UserWithRoles.create(stdUser());
+    }
+
+    /**
+     * The training view of the same {@link StdUser}
+     */
+    public UserWithTrainingCompleted asUserWithTrainingCompleted() {
+        return UserWithTrainingCompleted.create(stdUser());
+    }
+
+    /**
+     * Grants access to the contained {@link StdUser} as a conversion utility
+     */
+    @Override
+    protected StdUser stdUser() {
+        return super.stdUser();
+    }
+
+    /**
+     * Static factory method, roles then training courses are validated against their vocabularies
+     */
+    public static IRoles create(final String userId) {
+        return roles -> trainingCourses -> DECLARATION.create(userId, roles, trainingCourses);
+    }
+
+    /**
+     * Conversion utility method
+     */
+    public static UserWithRolesAndTraining create(final StdUser stdUser) {
+        return DECLARATION.convert(stdUser);
+    }
+
+    public interface IRoles {
+        ITrainingCourses withRoles(String... roles);
+    }
+
+    public interface ITrainingCourses {
+        UserWithRolesAndTraining withTrainingCourses(String... trainingCourses) throws JsonProcessingException;
+    }
+}
@@ -1,148 +1,133 @@
 package com.builder.userexample.client;
 
+import com.builder.userexample.domain.AttributeKeys;
+import com.builder.userexample.domain.AttributeType;
 import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.domain.TypedView;
 import com.builder.userexample.domain.User;
+import com.builder.userexample.domain.VocabularySet;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
-import java.util.AbstractMap.SimpleImmutableEntry;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
-import java.util.stream.Stream;
-
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
 
 /**
  * Implements {@link User} but contains a private instance of {@link StdUser} which is the primary source of state,
  * the public fields give external access to that.
  */
-public class UserWithTrainingCompleted implements User {
+public class UserWithTrainingCompleted extends TypedView<UserWithTrainingCompleted> {
 
-    private static final List<String> allowed = Stream.of("COURSE1", "COURSE2", "COURSE3").collect(toList());
-    private static final String TRAINING_COURSE_KEY = "TRAINING_COURSES";
-    private static final ObjectMapper mapper = new ObjectMapper();
+    /**
+     * The completed training courses attribute as stored on a {@link StdUser}
+     */
+    public static final AttributeType<TrainingCourse> TRAINING_COURSES = AttributeType.of(AttributeKeys.TRAINING_COURSES,
+            TrainingCourse.class, "Invalid training course supplied");
+    private static final Declaration<UserWithTrainingCompleted> DECLARATION = Declaration.of(UserWithTrainingCompleted.class,
+            UserWithTrainingCompleted::new).attribute("trainingCompleted", TRAINING_COURSES);
+
+    @JsonCreator
+    private UserWithTrainingCompleted(@JsonProperty("userWithTrainingCompleted") final StdUser UserWithTrainingCompleted) {
+        super(UserWithTrainingCompleted);
+    }
 
     @JsonProperty("userWithTrainingCompleted")
-    private final StdUser userWithTrainingCompleted;
+    private StdUser userWithTrainingCompleted() {
+        return stdUser();
+    }
 
+    @Override
+    protected Declaration<UserWithTrainingCompleted> declaration() {
+        return DECLARATION;
+    }
+
+    /**
+     * Course names in {@link TrainingCourse} ordinal order, backed by the shared {@link VocabularySet} for this
+     * combination
+     */
     @JsonIgnore
-    public String userId;
-    @JsonIgnore
-    private List<String> trainingCompleted = null;
+    public List<String> getTrainingCompleted() {
+        return trainingCompletedSet();
+    }
 
     /**
-     * This {@link com.builder.userexample.client.UserWithTrainingCompleted.Proxy} Class grants local access to protected elements within the {@link StdUser} instance
+     * The completed courses as a bitmask backed set
      */
-    private static class Proxy extends StdUser {
-        public Proxy(final String userId, final Map<String, String> attributes) {
-            super(userId, attributes);
-        }
-        public Proxy(final StdUser stdUser) {
-            super(stdUser);
-        }
-        public Map<String, String> getAttributes() {
-            return super.attributes;
-        }
-
-        public String getUserId() {
-            return super.userId;
-        }
+    public VocabularySet<TrainingCourse> trainingCompletedSet() {
+        return get(TRAINING_COURSES);
     }
 
-    @JsonCreator
-    private UserWithTrainingCompleted(@JsonProperty("userWithTrainingCompleted") final StdUser UserWithTrainingCompleted) {
-        this.userWithTrainingCompleted = UserWithTrainingCompleted;
-        this.userId = UserWithTrainingCompleted.userId;
+    public boolean hasCompleted(final TrainingCourse trainingCourse) {
+        return trainingCompletedSet().contains(trainingCourse);
     }
 
-    private UserWithTrainingCompleted(final String userId, final Map<String, String> attributes) {
-        this.userWithTrainingCompleted = new Proxy(userId, attributes);
-        this.userId = userId;
+    public boolean hasCompleted(final String trainingCourse) {
+        return trainingCompletedSet().contains(trainingCourse);
     }
 
-    @JsonIgnore
-    public List<String> getTrainingCompleted() {
-        if (this.trainingCompleted == null) {
-            this.trainingCompleted = trainingCourseGen(new Proxy(userWithTrainingCompleted).getAttributes());
-        }
-        return this.trainingCompleted;
+    public boolean hasCompletedAll(final TrainingCourse... trainingCourses) {
+        return trainingCompletedSet().containsAll(trainingCourses);
     }
 
     /**
-     * Grants access to the contained {@link StdUser} as a conversion utility
+     * Copy on write update, the copy shares every other attribute with this user which is returned itself when the
+     * course is already completed
      */
-    protected StdUser stdUser() {
-        return this.userWithTrainingCompleted;
+    public UserWithTrainingCompleted withAddedCourse(final TrainingCourse trainingCourse) {
+        return withTrainingCompletedSet(VocabularySet.of(TrainingCourse.class, trainingCompletedSet().mask() | VocabularySet.bit(trainingCourse)));
+    }
+
+    /**
+     * Copy on write update, returns this user when the course is not completed
+     */
+    public UserWithTrainingCompleted withoutCourse(final TrainingCourse trainingCourse) {
+        return withTrainingCompletedSet(VocabularySet.of(TrainingCourse.class, trainingCompletedSet().mask() & ~VocabularySet.bit(trainingCourse)));
     }
 
     /**
-     * Utility function
+     * Copy on write update replacing all completed courses, returns this user when they are unchanged
      */
-    private static List<String> trainingCourseGen(final Map<String, String> attributes) {
-        return Optional.ofNullable(attributes.get(TRAINING_COURSE_KEY)).map(val -> {
-            try {
-                return mapper.readValue(val, mapper.getTypeFactory().constructCollectionType(List.class, String.class));
-            } catch (JsonProcessingException e) {
-                return new ArrayList<String>();
-            }
-        }).orElseGet(ArrayList::new);
+    public UserWithTrainingCompleted withTrainingCompletedSet(final VocabularySet<TrainingCourse> trainingCompleted) {
+        return with(TRAINING_COURSES, trainingCompleted);
+    }
+
+    /**
+     * Grants access to the contained {@link StdUser} as a conversion utility
+     */
+    @Override
+    protected StdUser stdUser() {
+        return super.stdUser();
     }
 
     /**
      * Static factory method
      */
     public static ITrainingCourses create(final String userId) {
-        return trainingCourses -> new UserWithTrainingCompleted(userId, Stream.of(new SimpleImmutableEntry<>(TRAINING_COURSE_KEY,
-                mapper.writeValueAsString(Stream.of(trainingCourses)
-                        .peek(course -> Optional.of(allowed.contains(course)).filter(val -> val).orElseThrow(() -> new RuntimeException("Invalid training course supplied")))
-                        .collect(toList()))
-        )).collect(toMap(SimpleImmutableEntry::getKey, SimpleImmutableEntry::getValue)));
+        return trainingCourses -> DECLARATION.create(userId, trainingCourses);
     }
 
     /**
      * Conversion utility method
      */
     public static com.builder.userexample.client.UserWithTrainingCompleted create(final StdUser stdUser) {
-        return new com.builder.userexample.client.UserWithTrainingCompleted(stdUser);
+        return DECLARATION.convert(stdUser);
     }
 
     public interface ITrainingCourses {
         UserWithTrainingCompleted withTrainingCourses(String... trainingCourses) throws JsonProcessingException;
     }
 
+    /**
+     * Equal to another {@link UserWithTrainingCompleted} with the same userId and completed courses. Identical encoded
+     * values are compared without decoding, other attributes are ignored.
+     * <p>
+     * For compatibility this view also equals a {@link StdUser} holding the same userId and courses. That comparison is
+     * one sided, {@link StdUser#equals(Object)} never equals a view and the hash codes differ, so do not mix views and
+     * {@link StdUser}s in hash based collections; {@code UserDedup} only compares users of the same class.
+     */
+    @Override
     public boolean equals(final Object object) {
-        if (this == object) {
-            return true;
-        }
-
-        if (object.getClass() != UserWithTrainingCompleted.class) {
-            if (object instanceof StdUser) {
-                return equals(UserWithTrainingCompleted.create((StdUser) object));
-            } else {
-                return false;
-            }
-        }
-
-        final UserWithTrainingCompleted that = (UserWithTrainingCompleted) object;
-        return userId.equals(that.userId) &&
-                java.util.Objects.equals(getTrainingCompleted(), that.getTrainingCompleted()); //needs to use getter method because of the lazy instanciation of this field
-    }
-
-    public int hashCode() {
-        return Objects.hash(super.hashCode(), userId, getTrainingCompleted()); //needs to use getter method for the training completed because of the lazy instanciation of this field
-    }
-
-    public java.lang.String toString() {
-        return new java.util.StringJoiner(", ", UserWithTrainingCompleted.class.getSimpleName() + "[", "]")
-                .add("userId='" + userId + "'")
-                .add("trainingCompleted=" + getTrainingCompleted()) //needs to use getter method because of the lazy instanciation of this field
-                .toString();
+        return object instanceof StdUser ? matches((StdUser) object) : super.equals(object);
     }
 }
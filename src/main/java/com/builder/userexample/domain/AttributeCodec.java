@@ -0,0 +1,18 @@
+package com.builder.userexample.domain;
+
+import java.util.List;
+
+/**
+ * Encodes multi valued attributes into the single {@code String} slot each key has in the {@link StdUser} attributes
+ * collection. Every codec must be able to {@code decode} what any other codec produced so stored and in flight users
+ * remain readable when the configured codec is changed.
+ */
+public interface AttributeCodec {
+
+    String encode(List<String> values);
+
+    /**
+     * @return the decoded values, an empty list for {@code null} or unreadable input
+     */
+    List<String> decode(String encoded);
+}
@@ -0,0 +1,218 @@
+package com.builder.userexample.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * The available {@link AttributeCodec}s.
+ * <p>
+ * {@code LEGACY_JSON} writes the escaped JSON array form ({@code "[\"DEV\"]"}) existing consumers expect,
+ * {@code COMPACT} writes length prefixed values ({@code "#3:DEV"}) which need no escaping on the wire and are read
+ * back with a single pass over the characters. Decoding recognises both forms whichever codec is used, the JSON form is
+ * scanned directly and only falls back to a full {@link ObjectMapper} parse for escaped content.
+ */
+public enum AttributeCodecs implements AttributeCodec {
+
+    LEGACY_JSON {
+        @Override
+        public String encode(final List<String> values) {
+            final StringBuilder builder = new StringBuilder(values.size() * 12 + 2).append('[');
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                appendJsonString(builder, values.get(i));
+            }
+            return builder.append(']').toString();
+        }
+    },
+
+    COMPACT {
+        @Override
+        public String encode(final List<String> values) {
+            final StringBuilder builder = new StringBuilder(values.size() * 10 + 1).append(COMPACT_MARKER);
+            for (final String value : values) {
+                builder.append(value.length()).append(':').append(value);
+            }
+            return builder.toString();
+        }
+    };
+
+    /**
+     * System property selecting the codec used for newly encoded attributes, defaults to {@code LEGACY_JSON}
+     */
+    public static final String CODEC_PROPERTY = "userexample.attribute.codec";
+
+    private static final char COMPACT_MARKER = '#';
+    private static final ObjectReader listReader = new ObjectMapper().readerFor(List.class);
+
+    @Override
+    public List<String> decode(final String encoded) {
+        return decodeAny(encoded);
+    }
+
+    /**
+     * The codec configured through {@link #CODEC_PROPERTY}. This runs while {@link StdUser} is initialised, so an
+     * unknown name must not throw: it is logged and {@code LEGACY_JSON} is used instead.
+     */
+    public static AttributeCodec fromSystemProperty() {
+        return named(System.getProperty(CODEC_PROPERTY));
+    }
+
+    /**
+     * The codec called {@code name} ignoring case and surrounding blanks, {@code LEGACY_JSON} when there is none
+     */
+    static AttributeCodecs named(final String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return LEGACY_JSON;
+        }
+        for (final AttributeCodecs codec : values()) {
+            if (codec.name().equalsIgnoreCase(name.trim())) {
+                return codec;
+            }
+        }
+        Logger.getLogger(AttributeCodecs.class.getName()).warning(() -> "Unknown attribute codec '" + name + "' in "
+                + CODEC_PROPERTY + ", expected one of " + Arrays.toString(values()) + ", using " + LEGACY_JSON);
+        return LEGACY_JSON;
+    }
+
+    /**
+     * Decodes either the compact or the legacy JSON form
+     */
+    public static List<String> decodeAny(final String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return new ArrayList<>();
+        }
+        switch (encoded.charAt(0)) {
+            case COMPACT_MARKER:
+                return decodeCompact(encoded);
+            case '[':
+                return decodeJson(encoded);
+            default:
+                return new ArrayList<>();
+        }
+    }
+
+    private static List<String> decodeCompact(final String encoded) {
+        final List<String> values = new ArrayList<>();
+        int position = 1;
+        while (position < encoded.length()) {
+            final int separator = encoded.indexOf(':', position);
+            if (separator < 0) {
+                return new ArrayList<>();
+            }
+            final int length;
+            try {
+                length = Integer.parseInt(encoded, position, separator, 10);
+            } catch (NumberFormatException e) {
+                return new ArrayList<>();
+            }
+            final int end = separator + 1 + length;
+            if (length < 0 || end > encoded.length()) {
+                return new ArrayList<>();
+            }
+            values.add(encoded.substring(separator + 1, end));
+            position = end;
+        }
+        return values;
+    }
+
+    /**
+     * Scans a flat JSON array of strings without escapes, anything else is handed to Jackson
+     */
+    private static List<String> decodeJson(final String encoded) {
+        final List<String> values = new ArrayList<>();
+        final int length = encoded.length();
+        int position = skipWhitespace(encoded, 1);
+        if (position < length && encoded.charAt(position) == ']') {
+            return trailingWhitespaceOnly(encoded, position + 1) ? values : decodeWithMapper(encoded);
+        }
+        while (position < length) {
+            if (encoded.charAt(position) != '"') {
+                return decodeWithMapper(encoded);
+            }
+            final int start = position + 1;
+            int end = start;
+            while (end < length && encoded.charAt(end) != '"') {
+                if (encoded.charAt(end) == '\\') {
+                    return decodeWithMapper(encoded);
+                }
+                end++;
+            }
+            if (end == length) {
+                return decodeWithMapper(encoded);
+            }
+            values.add(encoded.substring(start, end));
+            position = skipWhitespace(encoded, end + 1);
+            if (position < length && encoded.charAt(position) == ',') {
+                position = skipWhitespace(encoded, position + 1);
+            } else if (position < length && encoded.charAt(position) == ']') {
+                return trailingWhitespaceOnly(encoded, position + 1) ? values : decodeWithMapper(encoded);
+            } else {
+                return decodeWithMapper(encoded);
+            }
+        }
+        return decodeWithMapper(encoded);
+    }
+
+    private static List<String> decodeWithMapper(final String encoded) {
+        try {
+            final List<?> parsed = listReader.readValue(encoded);
+            final List<String> values = new ArrayList<>(parsed.size());
+            for (final Object value : parsed) {
+                values.add(String.valueOf(value));
+            }
+            return values;
+        } catch (JsonProcessingException | RuntimeException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    private static int skipWhitespace(final String value, int position) {
+        while (position < value.length() && Character.isWhitespace(value.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean trailingWhitespaceOnly(final String value, final int position) {
+        return skipWhitespace(value, position) == value.length();
+    }
+
+    private static void appendJsonString(final StringBuilder builder, final String value) {
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04X", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        builder.append('"');
+    }
+}
@@ -0,0 +1,28 @@
+package com.builder.userexample.domain;
+
+/**
+ * The well known attribute keys. Keys read into an {@link AttributeMap} are replaced by these constants so the parsed
+ * copies can be collected and lookups with a constant usually succeed on the identity check.
+ */
+public final class AttributeKeys {
+
+    public static final String ROLES = "ROLES";
+    public static final String TRAINING_COURSES = "TRAINING_COURSES";
+
+    private AttributeKeys() {
+    }
+
+    /**
+     * @return the constant equal to {@code key}, or {@code key} itself
+     */
+    public static String intern(final String key) {
+        switch (key) {
+            case ROLES:
+                return ROLES;
+            case TRAINING_COURSES:
+                return TRAINING_COURSES;
+            default:
+                return key;
+        }
+    }
+}
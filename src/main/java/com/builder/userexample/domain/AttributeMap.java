@@ -0,0 +1,231 @@
+package com.builder.userexample.domain;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable attributes collection held as two parallel arrays with the keys in sorted order.
+ * <p>
+ * A user typically carries a handful of attributes, for which a {@code HashMap} behind an unmodifiable wrapper costs a
+ * table, a node per entry and the wrapper. Here the overhead is two arrays. Small maps are searched linearly, larger
+ * ones with a binary search. Well known keys are interned through {@link AttributeKeys}.
+ */
+public final class AttributeMap extends AbstractMap<String, String> {
+
+    public static final AttributeMap EMPTY = new AttributeMap(new String[0], new String[0]);
+
+    private static final int LINEAR_SEARCH_LIMIT = 8;
+
+    private final String[] keys;
+    private final String[] values;
+    private int hash; // lazily computed, 0 until first use like String.hashCode()
+
+    private AttributeMap(final String[] keys, final String[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    public static AttributeMap of(final String key, final String value) {
+        return new AttributeMap(new String[]{AttributeKeys.intern(Objects.requireNonNull(key, "key"))}, new String[]{value});
+    }
+
+    /**
+     * @return {@code map} itself when it already is an {@link AttributeMap}, otherwise a compact copy
+     */
+    public static AttributeMap copyOf(final Map<String, String> map) {
+        if (map instanceof AttributeMap) {
+            return (AttributeMap) map;
+        }
+        if (map == null || map.isEmpty()) {
+            return EMPTY;
+        }
+        final String[] keys = new String[map.size()];
+        int size = 0;
+        for (final String key : map.keySet()) {
+            keys[size++] = AttributeKeys.intern(Objects.requireNonNull(key, "attribute keys must not be null"));
+        }
+        Arrays.sort(keys);
+        final String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = map.get(keys[i]);
+        }
+        return new AttributeMap(keys, values);
+    }
+
+    /**
+     * A copy with {@code key} set to {@code value}, or this map when it already holds that value. Replacing the value of
+     * an existing key shares the keys array with this map, only the values array is copied.
+     */
+    public AttributeMap with(final String key, final String value) {
+        final int index = indexOf(key);
+        if (index >= 0) {
+            if (Objects.equals(values[index], value)) {
+                return this;
+            }
+            final String[] replaced = values.clone();
+            replaced[index] = value;
+            return new AttributeMap(keys, replaced);
+        }
+        final String interned = AttributeKeys.intern(Objects.requireNonNull(key, "key"));
+        final int insertion = -Arrays.binarySearch(keys, interned) - 1;
+        final String[] grownKeys = new String[keys.length + 1];
+        final String[] grownValues = new String[keys.length + 1];
+        System.arraycopy(keys, 0, grownKeys, 0, insertion);
+        System.arraycopy(values, 0, grownValues, 0, insertion);
+        grownKeys[insertion] = interned;
+        grownValues[insertion] = value;
+        System.arraycopy(keys, insertion, grownKeys, insertion + 1, keys.length - insertion);
+        System.arraycopy(values, insertion, grownValues, insertion + 1, keys.length - insertion);
+        return new AttributeMap(grownKeys, grownValues);
+    }
+
+    /**
+     * A copy without {@code key}, or this map when it does not hold the key
+     */
+    public AttributeMap without(final String key) {
+        final int index = indexOf(key);
+        if (index < 0) {
+            return this;
+        }
+        if (keys.length == 1) {
+            return EMPTY;
+        }
+        final String[] shrunkKeys = new String[keys.length - 1];
+        final String[] shrunkValues = new String[keys.length - 1];
+        System.arraycopy(keys, 0, shrunkKeys, 0, index);
+        System.arraycopy(values, 0, shrunkValues, 0, index);
+        System.arraycopy(keys, index + 1, shrunkKeys, index, shrunkKeys.length - index);
+        System.arraycopy(values, index + 1, shrunkValues, index, shrunkValues.length - index);
+        return new AttributeMap(shrunkKeys, shrunkValues);
+    }
+
+    /**
+     * Whether both maps share their keys array, i.e. one was derived from the other by replacing values
+     */
+    boolean sharesKeysWith(final AttributeMap other) {
+        return keys == other.keys;
+    }
+
+    /**
+     * The key at {@code index} in sorted key order, for serializers walking the map without allocating entries
+     */
+    public String keyAt(final int index) {
+        return keys[index];
+    }
+
+    public String valueAt(final int index) {
+        return values[index];
+    }
+
+    @Override
+    public String get(final Object key) {
+        final int index = indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    @Override
+    public void forEach(final BiConsumer<? super String, ? super String> action) {
+        for (int i = 0; i < keys.length; i++) {
+            action.accept(keys[i], values[i]);
+        }
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<Entry<String, String>>() {
+                    private int index = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < keys.length;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (index >= keys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        final Entry<String, String> entry = new SimpleImmutableEntry<>(keys[index], values[index]);
+                        index++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (object instanceof AttributeMap) {
+            final AttributeMap that = (AttributeMap) object;
+            return hashCode() == that.hashCode() && Arrays.equals(keys, that.keys) && Arrays.equals(values, that.values);
+        }
+        return super.equals(object);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            for (int i = 0; i < keys.length; i++) {
+                h += keys[i].hashCode() ^ Objects.hashCode(values[i]); // Map.hashCode() contract
+            }
+            hash = h;
+        }
+        return h;
+    }
+
+    private int indexOf(final Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        if (keys.length <= LINEAR_SEARCH_LIMIT) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        final int index = Arrays.binarySearch(keys, key);
+        return index < 0 ? -1 : index;
+    }
+}
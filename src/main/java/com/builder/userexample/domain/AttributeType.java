@@ -0,0 +1,151 @@
+package com.builder.userexample.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Declares a multi valued attribute once: the key it is stored under, the enum vocabulary of its values and the codec
+ * packing them into the attribute value. Typed views hold one shared declaration per attribute and use it to validate,
+ * decode and write the attribute, so a new attribute type is a new constant rather than a new code path.
+ * <p>
+ * Decoded sets are memoized per encoded value, users share few distinct combinations so most reads are a single map
+ * lookup. The memo stops growing at {@value #MEMO_LIMIT} entries, later values are decoded on every read.
+ */
+public final class AttributeType<E extends Enum<E>> {
+
+    static final int MEMO_LIMIT = 1024;
+
+    private final String key;
+    private final Class<E> vocabulary;
+    private final String invalidMessage;
+    private final AttributeCodec codec; // null follows StdUser.attributeCodec()
+    private final ConcurrentHashMap<String, VocabularySet<E>> decoded = new ConcurrentHashMap<>();
+
+    private AttributeType(final String key, final Class<E> vocabulary, final String invalidMessage, final AttributeCodec codec) {
+        this.key = AttributeKeys.intern(Objects.requireNonNull(key, "key"));
+        this.vocabulary = Objects.requireNonNull(vocabulary, "vocabulary");
+        this.invalidMessage = invalidMessage;
+        this.codec = codec;
+    }
+
+    /**
+     * An attribute encoded with the codec configured on {@link StdUser} at the time of writing
+     *
+     * @param invalidMessage message of the exception thrown by {@link #parse(String...)} for unknown names
+     */
+    public static <E extends Enum<E>> AttributeType<E> of(final String key, final Class<E> vocabulary, final String invalidMessage) {
+        return new AttributeType<>(key, vocabulary, invalidMessage, null);
+    }
+
+    /**
+     * The same attribute always written with {@code codec}
+     */
+    public AttributeType<E> withCodec(final AttributeCodec codec) {
+        return new AttributeType<>(key, vocabulary, invalidMessage, Objects.requireNonNull(codec, "codec"));
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public Class<E> vocabulary() {
+        return vocabulary;
+    }
+
+    public AttributeCodec codec() {
+        return codec == null ? StdUser.attributeCodec() : codec;
+    }
+
+    /**
+     * Validates user supplied names, throws a {@link RuntimeException} for a name outside the vocabulary
+     */
+    public VocabularySet<E> parse(final String... names) {
+        return VocabularySet.parse(vocabulary, Arrays.asList(names), invalidMessage);
+    }
+
+    /**
+     * Decodes a stored value, names unknown to the vocabulary are dropped and a missing value is the empty set
+     */
+    public VocabularySet<E> decode(final String encoded) {
+        if (encoded == null) {
+            return VocabularySet.parseKnown(vocabulary, codec().decode(null));
+        }
+        final VocabularySet<E> memoized = decoded.get(encoded);
+        if (memoized != null) {
+            return memoized;
+        }
+        final VocabularySet<E> values = VocabularySet.parseKnown(vocabulary, codec().decode(encoded));
+        if (decoded.size() < MEMO_LIMIT) {
+            decoded.putIfAbsent(encoded, values);
+        }
+        return values;
+    }
+
+    public String encode(final VocabularySet<E> values) {
+        return codec().encode(values);
+    }
+
+    /**
+     * The raw stored value of this attribute
+     */
+    public String encoded(final StdUser user) {
+        return user.attributes.get(key);
+    }
+
+    public VocabularySet<E> read(final StdUser user) {
+        return decode(encoded(user));
+    }
+
+    /**
+     * Copy on write update of this attribute, every other attribute is shared with {@code user}. The stored names are
+     * edited rather than replaced: names unknown to the vocabulary are carried through, kept names stay where they are
+     * (duplicates included) and added names go before the first kept name of a higher ordinal, so a canonically
+     * encoded value stays canonical. Returns {@code user} itself when nothing changes.
+     */
+    public StdUser write(final StdUser user, final VocabularySet<E> values) {
+        final String encoded = encoded(user);
+        if (encoded == null) {
+            return values.isEmpty() ? user : StdUser.withAttribute(user, key, encode(values));
+        }
+        final List<String> stored = codec().decode(encoded);
+        long pending = values.mask();
+        for (final String name : stored) {
+            final E value = VocabularySet.lookup(vocabulary, name);
+            if (value != null) {
+                pending &= ~VocabularySet.bit(value);
+            }
+        }
+        final List<String> updated = new ArrayList<>(stored.size() + Long.bitCount(pending));
+        for (final String name : stored) {
+            final E value = VocabularySet.lookup(vocabulary, name);
+            if (value == null) {
+                updated.add(name);
+            } else if (values.contains(value)) {
+                final long lower = pending & (VocabularySet.bit(value) - 1);
+                updated.addAll(VocabularySet.of(vocabulary, lower));
+                pending &= ~lower;
+                updated.add(name);
+            }
+        }
+        updated.addAll(VocabularySet.of(vocabulary, pending));
+        if (updated.equals(stored)) {
+            return user;
+        }
+        return StdUser.withAttribute(user, key, codec().encode(updated));
+    }
+
+    /**
+     * A new user holding only this attribute
+     */
+    public StdUser create(final String userId, final VocabularySet<E> values) {
+        return new StdUser(userId, AttributeMap.of(key, encode(values)));
+    }
+
+    @Override
+    public String toString() {
+        return key + "<" + vocabulary.getSimpleName() + ">";
+    }
+}
@@ -0,0 +1,58 @@
+package com.builder.userexample.domain;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
+
+/**
+ * Lazily decoded attribute held in a {@code volatile} field of its owner, shared by all instances of the owning class.
+ * <p>
+ * Once decoded a read is a single volatile load without locking. The first readers of an instance synchronise on it
+ * so the decoder runs exactly once even under contention, and the value is safely published to every thread. No
+ * holder object is allocated per instance, the owner only pays for the field itself:
+ * <pre>{@code
+ * private volatile List<String> values;
+ * private static final LazyField<Owner, List<String>> VALUES = LazyField.of(
+ *         AtomicReferenceFieldUpdater.newUpdater(Owner.class, List.class, "values"), Owner::decodeValues);
+ * }</pre>
+ * The updater has to be created in the owning class as the field is usually private.
+ */
+public final class LazyField<O, V> {
+
+    private final AtomicReferenceFieldUpdater<O, V> field;
+    private final Function<? super O, ? extends V> decoder;
+
+    private LazyField(final AtomicReferenceFieldUpdater<O, V> field, final Function<? super O, ? extends V> decoder) {
+        this.field = field;
+        this.decoder = decoder;
+    }
+
+    /**
+     * Static factory method, {@code decoder} must not return {@code null}
+     */
+    public static <O, V> LazyField<O, V> of(final AtomicReferenceFieldUpdater<O, V> field, final Function<? super O, ? extends V> decoder) {
+        return new LazyField<>(field, decoder);
+    }
+
+    public V get(final O owner) {
+        final V value = field.get(owner);
+        return value != null ? value : decode(owner);
+    }
+
+    public boolean isDecoded(final O owner) {
+        return field.get(owner) != null;
+    }
+
+    private V decode(final O owner) {
+        synchronized (owner) {
+            V value = field.get(owner);
+            if (value == null) {
+                value = decoder.apply(owner);
+                if (value == null) {
+                    throw new IllegalStateException("Decoder returned null for " + owner.getClass().getName());
+                }
+                field.set(owner, value);
+            }
+            return value;
+        }
+    }
+}
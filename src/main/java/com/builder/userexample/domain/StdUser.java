@@ -3,23 +3,26 @@ package com.builder.userexample.domain;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * This class is the holder for all data but only {@code userId} is public along with the static {@code create()} method.
  */
 public class StdUser implements User {
 
+    private static volatile AttributeCodec attributeCodec = AttributeCodecs.fromSystemProperty();
+
     @JsonProperty("user_id")
     public final String userId;
     @JsonProperty("attributes")
-    protected final Map<String, String> attributes; // must be protected
+    protected final Map<String, String> attributes; // must be protected, always an immutable AttributeMap
+
+    private int attributesHash; // lazily computed, 0 until first use like String.hashCode()
 
     private StdUser(final String userId) {
         this.userId = userId;
-        this.attributes = new HashMap<>();
+        this.attributes = AttributeMap.EMPTY;
     }
 
     protected StdUser(final StdUser stdUser) { // must be protected
@@ -30,11 +33,91 @@ public class StdUser implements User {
     @JsonCreator
     protected StdUser( @JsonProperty("user_id") final String userId,  @JsonProperty("attributes") final Map<String, String> entries) {
         this.userId = userId;
-        this.attributes = Collections.unmodifiableMap(entries);
+        this.attributes = AttributeMap.copyOf(entries);
+    }
+
+    /**
+     * Allocation free read of a single attribute for subclasses acting on other instances, typed views read theirs
+     * through {@link AttributeType} instead of constructing one per read
+     */
+    protected static String attribute(final StdUser stdUser, final String key) {
+        return stdUser.attributes.get(key);
+    }
+
+    /**
+     * Copy on write update, the copy shares all unchanged attribute storage with {@code stdUser} which is returned
+     * itself when it already holds {@code value}
+     */
+    protected static StdUser withAttribute(final StdUser stdUser, final String key, final String value) {
+        final AttributeMap attributes = ((AttributeMap) stdUser.attributes).with(key, value);
+        return attributes == stdUser.attributes ? stdUser : new StdUser(stdUser.userId, attributes);
+    }
+
+    /**
+     * Copy on write removal, {@code stdUser} is returned itself when it does not hold {@code key}
+     */
+    protected static StdUser withoutAttribute(final StdUser stdUser, final String key) {
+        final AttributeMap attributes = ((AttributeMap) stdUser.attributes).without(key);
+        return attributes == stdUser.attributes ? stdUser : new StdUser(stdUser.userId, attributes);
     }
 
     public static StdUser create(final String userId) {
         return new StdUser(userId);
     }
 
+    /**
+     * A stamp of the attribute contents, cached after the first call. Users whose attributes differ almost always have
+     * different stamps, confirm with {@link #sameAttributes(StdUser)}.
+     */
+    public int attributesHash() {
+        int hash = attributesHash;
+        if (hash == 0) {
+            hash = attributes.hashCode();
+            attributesHash = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * Compares the encoded attribute values without decoding them
+     */
+    public boolean sameAttributes(final StdUser other) {
+        return attributes == other.attributes || (attributesHash() == other.attributesHash() && attributes.equals(other.attributes));
+    }
+
+    /**
+     * Value equality on the userId and the encoded attributes, comparing the cached attribute hashes first. The concrete
+     * class is not compared, instances built by any subclass equal the plain {@link StdUser} with the same contents.
+     */
+    @Override
+    public boolean equals(final Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof StdUser)) {
+            return false;
+        }
+        final StdUser that = (StdUser) object;
+        return userId.equals(that.userId) && sameAttributes(that);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * userId.hashCode() + attributesHash();
+    }
+
+    /**
+     * The codec used to pack multi valued attributes into the attributes collection
+     */
+    public static AttributeCodec attributeCodec() {
+        return attributeCodec;
+    }
+
+    /**
+     * Replaces the codec used for newly encoded attributes, values written by any other codec remain readable
+     */
+    public static void attributeCodec(final AttributeCodec codec) {
+        attributeCodec = Objects.requireNonNull(codec, "codec");
+    }
+
 }
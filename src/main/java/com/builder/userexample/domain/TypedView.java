@@ -0,0 +1,300 @@
+package com.builder.userexample.domain;
+
+import com.builder.userexample.metrics.UserMetrics;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
+
+/**
+ * Base of the typed views wrapping a {@link StdUser}. A view class only declares its attributes as
+ * {@link AttributeType} constants in a shared {@link Declaration}, this class does the rest:
+ * <ul>
+ * <li>the declared attributes are decoded together on first access and kept in a single {@link LazyField}</li>
+ * <li>copy on write updates share every other attribute and carry over what is already decoded</li>
+ * <li>views of the same class are equal when their userId and declared attributes are, other attributes are
+ * ignored and identical encoded values are compared without decoding</li>
+ * <li>{@code hashCode()} is cached and {@code toString()} lists the declared attributes under their labels</li>
+ * </ul>
+ * The JSON envelope naming the {@link StdUser} stays with the view class as Jackson needs it on a creator.
+ */
+public abstract class TypedView<V extends TypedView<V>> implements User {
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final LazyField<TypedView<?>, VocabularySet<?>[]> DECODED = LazyField.of(
+            (AtomicReferenceFieldUpdater<TypedView<?>, VocabularySet<?>[]>) (AtomicReferenceFieldUpdater)
+                    AtomicReferenceFieldUpdater.newUpdater(TypedView.class, VocabularySet[].class, "decoded"),
+            TypedView::decodeAll);
+
+    @JsonIgnore
+    private final StdUser stdUser;
+    @JsonIgnore
+    public final String userId;
+    @JsonIgnore
+    private volatile VocabularySet<?>[] decoded = null; // in declaration order, never modified once set
+    @JsonIgnore
+    private int hash; // lazily computed, 0 until first use like String.hashCode()
+
+    protected TypedView(final StdUser stdUser) {
+        this.stdUser = stdUser;
+        this.userId = stdUser.userId;
+    }
+
+    /**
+     * The shared declaration of this view class
+     */
+    protected abstract Declaration<V> declaration();
+
+    /**
+     * Grants access to the contained {@link StdUser} as a conversion utility
+     */
+    protected StdUser stdUser() {
+        return stdUser;
+    }
+
+    /**
+     * Every attribute of the contained {@link StdUser}, immutable, for views storing or diffing whole users
+     */
+    protected final Map<String, String> attributes() {
+        return stdUser.attributes;
+    }
+
+    /**
+     * A user holding a compact copy of {@code attributes}, for views rebuilding whole users
+     */
+    protected static StdUser userOf(final String userId, final Map<String, String> attributes) {
+        return new StdUser(userId, attributes);
+    }
+
+    /**
+     * The decoded values of a declared attribute
+     */
+    @SuppressWarnings("unchecked")
+    protected final <E extends Enum<E>> VocabularySet<E> get(final AttributeType<E> type) {
+        return (VocabularySet<E>) DECODED.get(this)[declaration().indexOf(type)];
+    }
+
+    /**
+     * Copy on write update of a declared attribute, the copy shares every other attribute with this view which is
+     * returned itself when the values are unchanged
+     */
+    protected final <E extends Enum<E>> V with(final AttributeType<E> type, final VocabularySet<E> values) {
+        final int index = declaration().indexOf(type);
+        final VocabularySet<?>[] decoded = DECODED.get(this);
+        if (values.mask() == decoded[index].mask()) {
+            return self();
+        }
+        final VocabularySet<?>[] updated = decoded.clone();
+        updated[index] = values;
+        return wrap(type.write(stdUser, values), updated);
+    }
+
+    /**
+     * Copy on write update of any attribute, the decoded attributes are carried over unless {@code key} holds one
+     */
+    public V withAttribute(final String key, final String value) {
+        return rewrapped(key, StdUser.withAttribute(stdUser, key, value));
+    }
+
+    /**
+     * Copy on write removal of any attribute, the decoded attributes are carried over unless {@code key} holds one
+     */
+    public V withoutAttribute(final String key) {
+        return rewrapped(key, StdUser.withoutAttribute(stdUser, key));
+    }
+
+    private V rewrapped(final String key, final StdUser updated) {
+        if (updated == stdUser) {
+            return self();
+        }
+        return wrap(updated, declaration().declares(key) ? null : decoded);
+    }
+
+    private V wrap(final StdUser updated, final VocabularySet<?>[] decoded) {
+        final V view = declaration().view.apply(updated);
+        ((TypedView<?>) view).decoded = decoded;
+        return view;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V self() {
+        return (V) this;
+    }
+
+    private static VocabularySet<?>[] decodeAll(final TypedView<?> view) {
+        final Declaration<?> declaration = view.declaration();
+        final long start = UserMetrics.start();
+        final VocabularySet<?>[] decoded = new VocabularySet<?>[declaration.types.length];
+        for (int i = 0; i < decoded.length; i++) {
+            decoded[i] = declaration.types[i].read(view.stdUser);
+        }
+        UserMetrics.stop(UserMetrics.DECODE, declaration.metricType, start);
+        return decoded;
+    }
+
+    /**
+     * Equal to a view of the same class with the same userId and declared attributes
+     */
+    @Override
+    public boolean equals(final Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (object == null || object.getClass() != getClass()) {
+            return false;
+        }
+        return matches(((TypedView<?>) object).stdUser);
+    }
+
+    /**
+     * Whether {@code that} holds the userId and declared attributes of this view, identical encoded values are
+     * compared without decoding
+     */
+    protected final boolean matches(final StdUser that) {
+        if (!userId.equals(that.userId)) {
+            return false;
+        }
+        final AttributeType<?>[] types = declaration().types;
+        for (int i = 0; i < types.length; i++) {
+            final String encoded = types[i].encoded(stdUser);
+            final String thatEncoded = types[i].encoded(that);
+            if (!Objects.equals(encoded, thatEncoded) && DECODED.get(this)[i].mask() != types[i].decode(thatEncoded).mask()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cached after the first call
+     */
+    @Override
+    public int hashCode() {
+        int hash = this.hash;
+        if (hash == 0) {
+            hash = userId.hashCode();
+            for (final VocabularySet<?> values : DECODED.get(this)) {
+                hash = 31 * hash + Long.hashCode(values.mask());
+            }
+            this.hash = hash;
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        final Declaration<V> declaration = declaration();
+        final StringJoiner joiner = new StringJoiner(", ", declaration.metricType + "[", "]")
+                .add("userId='" + userId + "'");
+        final VocabularySet<?>[] decoded = DECODED.get(this);
+        for (int i = 0; i < decoded.length; i++) {
+            joiner.add(declaration.labels[i] + "=" + decoded[i]);
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * The attributes of a view class, built once per class:
+     * <pre>{@code
+     * private static final Declaration<UserWithRoles> DECLARATION = Declaration.of(UserWithRoles.class, UserWithRoles::new)
+     *         .attribute("roles", ROLES);
+     * }</pre>
+     * The view class' simple name doubles as the metric type of its decodes, conversions and creations.
+     */
+    public static final class Declaration<V extends TypedView<V>> {
+
+        private final String metricType;
+        private final Function<StdUser, V> view;
+        private final String[] labels;
+        private final AttributeType<?>[] types;
+
+        private Declaration(final String metricType, final Function<StdUser, V> view, final String[] labels, final AttributeType<?>[] types) {
+            this.metricType = metricType;
+            this.view = view;
+            this.labels = labels;
+            this.types = types;
+        }
+
+        /**
+         * @param view wraps a {@link StdUser} without decoding it
+         */
+        public static <V extends TypedView<V>> Declaration<V> of(final Class<V> type, final Function<StdUser, V> view) {
+            return new Declaration<>(type.getSimpleName(), view, new String[0], new AttributeType<?>[0]);
+        }
+
+        /**
+         * This declaration extended by an attribute, {@code label} names it in {@code toString()}
+         */
+        public Declaration<V> attribute(final String label, final AttributeType<?> type) {
+            final String[] labels = Arrays.copyOf(this.labels, this.labels.length + 1);
+            final AttributeType<?>[] types = Arrays.copyOf(this.types, this.types.length + 1);
+            labels[labels.length - 1] = label;
+            types[types.length - 1] = type;
+            return new Declaration<>(metricType, view, labels, types);
+        }
+
+        /**
+         * Conversion of a {@link StdUser}, its attributes are decoded on first access
+         */
+        public V convert(final StdUser stdUser) {
+            final long start = UserMetrics.start();
+            final V converted = view.apply(stdUser);
+            UserMetrics.stop(UserMetrics.CONVERT, metricType, start);
+            return converted;
+        }
+
+        /**
+         * A new user holding the declared attributes, {@code names} in declaration order are validated against their
+         * vocabularies
+         *
+         * @throws RuntimeException for a name outside its vocabulary
+         */
+        public V create(final String userId, final String[]... names) {
+            final long start = UserMetrics.start();
+            final VocabularySet<?>[] decoded = new VocabularySet<?>[types.length];
+            try {
+                for (int i = 0; i < types.length; i++) {
+                    decoded[i] = types[i].parse(names[i]);
+                }
+            } catch (RuntimeException e) {
+                UserMetrics.count(UserMetrics.VALIDATION_FAILURE, metricType);
+                throw e;
+            }
+            StdUser stdUser = StdUser.create(userId);
+            for (int i = 0; i < types.length; i++) {
+                stdUser = write(types[i], stdUser, decoded[i]);
+            }
+            final V created = view.apply(stdUser);
+            ((TypedView<?>) created).decoded = decoded;
+            UserMetrics.stop(UserMetrics.CREATE, metricType, start);
+            return created;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <E extends Enum<E>> StdUser write(final AttributeType<E> type, final StdUser stdUser, final VocabularySet<?> values) {
+            return StdUser.withAttribute(stdUser, type.key(), type.encode((VocabularySet<E>) values));
+        }
+
+        private int indexOf(final AttributeType<?> type) {
+            for (int i = 0; i < types.length; i++) {
+                if (types[i] == type) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException(type + " is not declared by " + metricType);
+        }
+
+        private boolean declares(final String key) {
+            for (final AttributeType<?> type : types) {
+                if (type.key().equals(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
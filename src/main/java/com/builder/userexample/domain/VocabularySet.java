@@ -0,0 +1,225 @@
+package com.builder.userexample.domain;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * An immutable set of enum constants held as a {@code long} bitmask which also presents itself as the
+ * {@code List<String>} of the constant names in ordinal order.
+ * <p>
+ * Instances of small vocabularies are shared, every user holding the same roles references the same instance, so a
+ * decoded set costs no per user heap beyond the reference.
+ */
+public final class VocabularySet<E extends Enum<E>> extends AbstractList<String> implements RandomAccess {
+
+    private static final int SHARED_LIMIT = 10; // vocabularies up to this size have every combination cached
+
+    private static final ClassValue<Universe<?>> universes = new ClassValue<Universe<?>>() {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected Universe<?> computeValue(final Class<?> type) {
+            return new Universe(type);
+        }
+    };
+
+    private final Universe<E> universe;
+    private final long mask;
+    private final int size;
+
+    private VocabularySet(final Universe<E> universe, final long mask) {
+        this.universe = universe;
+        this.mask = mask;
+        this.size = Long.bitCount(mask);
+    }
+
+    /**
+     * @return the set described by {@code mask}, bit {@code n} standing for the constant with ordinal {@code n}
+     */
+    public static <E extends Enum<E>> VocabularySet<E> of(final Class<E> type, final long mask) {
+        return universe(type).set(mask);
+    }
+
+    @SafeVarargs
+    public static <E extends Enum<E>> VocabularySet<E> of(final Class<E> type, final E... values) {
+        long mask = 0L;
+        for (final E value : values) {
+            mask |= bit(value);
+        }
+        return of(type, mask);
+    }
+
+    /**
+     * Validating conversion from constant names
+     *
+     * @throws RuntimeException carrying {@code invalidMessage} when a name is not part of the vocabulary
+     */
+    public static <E extends Enum<E>> VocabularySet<E> parse(final Class<E> type, final Iterable<String> names, final String invalidMessage) {
+        long mask = 0L;
+        for (final String name : names) {
+            final E value = universe(type).lookup(name);
+            if (value == null) {
+                throw new RuntimeException(invalidMessage);
+            }
+            mask |= bit(value);
+        }
+        return of(type, mask);
+    }
+
+    /**
+     * Lenient conversion from constant names, unknown names are dropped
+     */
+    public static <E extends Enum<E>> VocabularySet<E> parseKnown(final Class<E> type, final Iterable<String> names) {
+        long mask = 0L;
+        for (final String name : names) {
+            final E value = universe(type).lookup(name);
+            if (value != null) {
+                mask |= bit(value);
+            }
+        }
+        return of(type, mask);
+    }
+
+    /**
+     * The constant named {@code name}, {@code null} when the vocabulary has none
+     */
+    static <E extends Enum<E>> E lookup(final Class<E> type, final String name) {
+        return universe(type).lookup(name);
+    }
+
+    public static long bit(final Enum<?> value) {
+        return 1L << value.ordinal();
+    }
+
+    public long mask() {
+        return mask;
+    }
+
+    public boolean contains(final E value) {
+        return (mask & bit(value)) != 0L;
+    }
+
+    @SafeVarargs
+    public final boolean containsAll(final E... values) {
+        for (final E value : values) {
+            if (!contains(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean containsAll(final VocabularySet<E> other) {
+        return (mask & other.mask) == other.mask;
+    }
+
+    public Set<E> toEnumSet() {
+        final EnumSet<E> values = EnumSet.noneOf(universe.type);
+        for (long remaining = mask; remaining != 0L; remaining &= remaining - 1) {
+            values.add(universe.constants[Long.numberOfTrailingZeros(remaining)]);
+        }
+        return values;
+    }
+
+    @Override
+    public String get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        long remaining = mask;
+        for (int i = 0; i < index; i++) {
+            remaining &= remaining - 1;
+        }
+        return universe.constants[Long.numberOfTrailingZeros(remaining)].name();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(final Object value) {
+        if (value instanceof String) {
+            final E constant = universe.lookup((String) value);
+            return constant != null && contains(constant);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsAll(final Collection<?> values) {
+        if (values instanceof VocabularySet && ((VocabularySet<?>) values).universe == universe) {
+            return (mask & ((VocabularySet<?>) values).mask) == ((VocabularySet<?>) values).mask;
+        }
+        return super.containsAll(values);
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (object instanceof VocabularySet && ((VocabularySet<?>) object).universe == universe) {
+            return mask == ((VocabularySet<?>) object).mask;
+        }
+        return super.equals(object);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode(); // must stay consistent with List.hashCode()
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Enum<E>> Universe<E> universe(final Class<E> type) {
+        return (Universe<E>) universes.get(type);
+    }
+
+    /**
+     * The constants of one enum type plus the cache of shared sets
+     */
+    private static final class Universe<E extends Enum<E>> {
+        private final Class<E> type;
+        private final E[] constants;
+        private final Map<String, E> byName;
+        private final long allMask;
+        private final VocabularySet<E>[] shared;
+
+        private Universe(final Class<E> type) {
+            this.type = type;
+            this.constants = type.getEnumConstants();
+            if (constants.length > Long.SIZE) {
+                throw new IllegalArgumentException(type.getName() + " has more than " + Long.SIZE + " constants");
+            }
+            this.byName = new HashMap<>(constants.length * 2);
+            for (final E constant : constants) {
+                byName.put(constant.name(), constant);
+            }
+            this.allMask = constants.length == Long.SIZE ? -1L : (1L << constants.length) - 1;
+            @SuppressWarnings("unchecked")
+            final VocabularySet<E>[] shared = constants.length <= SHARED_LIMIT ? (VocabularySet<E>[]) new VocabularySet<?>[1 << constants.length] : null;
+            this.shared = shared;
+        }
+
+        private VocabularySet<E> set(final long mask) {
+            if ((mask & ~allMask) != 0L) {
+                throw new IllegalArgumentException("Mask " + Long.toBinaryString(mask) + " outside of " + type.getName());
+            }
+            if (shared == null) {
+                return new VocabularySet<>(this, mask);
+            }
+            VocabularySet<E> set = shared[(int) mask];
+            if (set == null) { // benign race, instances are immutable and interchangeable
+                set = new VocabularySet<>(this, mask);
+                shared[(int) mask] = set;
+            }
+            return set;
+        }
+
+        private E lookup(final String name) {
+            return name == null ? null : byName.get(name);
+        }
+    }
+}
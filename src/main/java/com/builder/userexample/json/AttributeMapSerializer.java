@@ -0,0 +1,41 @@
+package com.builder.userexample.json;
+
+import com.builder.userexample.domain.AttributeMap;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes an {@link AttributeMap} by index, producing the same output as Jackson's map serializer without allocating an
+ * entry and an iterator per attribute.
+ */
+final class AttributeMapSerializer extends StdSerializer<AttributeMap> {
+
+    private static final long serialVersionUID = 1L;
+
+    AttributeMapSerializer() {
+        super(AttributeMap.class);
+    }
+
+    @Override
+    public boolean isEmpty(final SerializerProvider provider, final AttributeMap map) {
+        return map.isEmpty();
+    }
+
+    @Override
+    public void serialize(final AttributeMap map, final JsonGenerator generator, final SerializerProvider provider) throws IOException {
+        generator.writeStartObject(map);
+        for (int i = 0, size = map.size(); i < size; i++) {
+            generator.writeFieldName(map.keyAt(i));
+            final String value = map.valueAt(i);
+            if (value == null) {
+                generator.writeNull();
+            } else {
+                generator.writeString(value);
+            }
+        }
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,36 @@
+package com.builder.userexample.json;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Counts the bytes passed through to the wrapped stream, used to report the size of users written to a stream
+ */
+public final class CountingOutputStream extends FilterOutputStream {
+
+    private long count;
+
+    public CountingOutputStream(final OutputStream out) {
+        super(out);
+    }
+
+    /**
+     * Bytes written so far
+     */
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        out.write(b);
+        count++;
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        out.write(bytes, offset, length);
+        count += length;
+    }
+}
@@ -0,0 +1,179 @@
+package com.builder.userexample.json;
+
+import com.builder.userexample.client.UserWithRoles;
+import com.builder.userexample.client.UserWithRolesAndTraining;
+import com.builder.userexample.client.UserWithTrainingCompleted;
+import com.builder.userexample.domain.AttributeMap;
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.domain.User;
+import com.builder.userexample.metrics.UserMetrics;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The one place users are marshalled. A single {@link ObjectMapper} is configured once and an {@link ObjectReader} and
+ * {@link ObjectWriter} per user type are resolved up front with their root (de)serializers prefetched, so no call pays
+ * for type resolution or serializer lookup. Reading and writing go straight between bytes, streams or buffers and the
+ * objects, with Jackson recycling its per thread byte and char buffers, no intermediate {@code String} is produced.
+ * <p>
+ * Writers never close the target stream, several users can be written to one stream. Every write records its size in
+ * {@link UserMetrics#SERIALIZED_BYTES}, other writers of users report theirs through {@link #serialized(User, long)}.
+ */
+public final class UserJson {
+
+    private static final ObjectMapper mapper = new ObjectMapper().registerModule(module());
+
+    private static final ClassValue<ObjectReader> readers = new ClassValue<ObjectReader>() {
+        @Override
+        protected ObjectReader computeValue(final Class<?> type) {
+            return mapper.readerFor(type);
+        }
+    };
+
+    private static final ClassValue<ObjectWriter> writers = new ClassValue<ObjectWriter>() {
+        @Override
+        protected ObjectWriter computeValue(final Class<?> type) {
+            return mapper.writerFor(type).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+    };
+
+    private static final ClassValue<ObjectWriter> unflushedWriters = new ClassValue<ObjectWriter>() {
+        @Override
+        protected ObjectWriter computeValue(final Class<?> type) {
+            return writers.get(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        }
+    };
+
+    static {
+        for (final Class<?> type : new Class<?>[]{StdUser.class, UserWithRoles.class, UserWithTrainingCompleted.class, UserWithRolesAndTraining.class}) {
+            readers.get(type);
+            writers.get(type);
+            unflushedWriters.get(type);
+        }
+    }
+
+    private UserJson() {
+    }
+
+    /**
+     * The Jackson customizations for users, registered on the shared mapper and on the web layer's mapper
+     */
+    public static Module module() {
+        return new SimpleModule(UserJson.class.getSimpleName())
+                .addSerializer(AttributeMap.class, new AttributeMapSerializer());
+    }
+
+    /**
+     * The shared mapper, configure readers and writers derived from it rather than the mapper itself
+     */
+    public static ObjectMapper mapper() {
+        return mapper;
+    }
+
+    public static ObjectReader reader(final Class<?> type) {
+        return readers.get(type);
+    }
+
+    public static ObjectWriter writer(final Class<?> type) {
+        return writers.get(type);
+    }
+
+    /**
+     * Like {@link #writer(Class)} but leaves flushing to the caller, for many users written through one generator
+     */
+    public static ObjectWriter unflushedWriter(final Class<?> type) {
+        return unflushedWriters.get(type);
+    }
+
+    public static byte[] toBytes(final User user) throws IOException {
+        final byte[] json = writer(user.getClass()).writeValueAsBytes(user);
+        serialized(user, json.length);
+        return json;
+    }
+
+    public static String toJson(final User user) throws IOException {
+        if (UserMetrics.enabled()) {
+            return new String(toBytes(user), StandardCharsets.UTF_8); // the size in bytes, not chars
+        }
+        return writer(user.getClass()).writeValueAsString(user);
+    }
+
+    /**
+     * Writes the user to {@code out} as UTF-8, the stream is flushed but left open
+     */
+    public static void write(final User user, final OutputStream out) throws IOException {
+        if (UserMetrics.enabled()) {
+            final CountingOutputStream counter = new CountingOutputStream(out);
+            writer(user.getClass()).writeValue(counter, user);
+            serialized(user, counter.count());
+        } else {
+            writer(user.getClass()).writeValue(out, user);
+        }
+    }
+
+    /**
+     * Writes the user at the buffer's position and advances it
+     *
+     * @return the number of bytes written
+     * @throws java.nio.BufferOverflowException when the buffer is too small, its position is then undefined
+     */
+    public static int write(final User user, final ByteBuffer buffer) throws IOException {
+        final int start = buffer.position();
+        writer(user.getClass()).writeValue(new ByteBufferBackedOutputStream(buffer), user);
+        final int length = buffer.position() - start;
+        serialized(user, length);
+        return length;
+    }
+
+    /**
+     * Records the size of a user written by other means than this class, so every marshalling path reports to the
+     * same {@link UserMetrics#SERIALIZED_BYTES} distribution
+     */
+    public static void serialized(final User user, final long bytes) {
+        UserMetrics.record(UserMetrics.SERIALIZED_BYTES, user.getClass().getSimpleName(), bytes);
+    }
+
+    public static <T extends User> T read(final byte[] json, final Class<T> type) throws IOException {
+        return reader(type).readValue(json);
+    }
+
+    public static <T extends User> T read(final byte[] json, final int offset, final int length, final Class<T> type) throws IOException {
+        return reader(type).readValue(json, offset, length);
+    }
+
+    public static <T extends User> T read(final String json, final Class<T> type) throws IOException {
+        return reader(type).readValue(json);
+    }
+
+    /**
+     * Reads one user from {@code in}, which is closed afterwards
+     */
+    public static <T extends User> T read(final InputStream in, final Class<T> type) throws IOException {
+        return reader(type).readValue(in);
+    }
+
+    /**
+     * Reads one user from the buffer's remaining bytes and advances its position past them
+     */
+    public static <T extends User> T read(final ByteBuffer buffer, final Class<T> type) throws IOException {
+        if (buffer.hasArray()) {
+            final T user = read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), type);
+            buffer.position(buffer.limit());
+            return user;
+        }
+        return read(new ByteBufferBackedInputStream(buffer), type);
+    }
+}
@@ -0,0 +1,56 @@
+package com.builder.userexample.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link UserMetrics.Recorder} keeping a {@link Histogram} per timer or distribution and a {@link LongAdder} per
+ * counter, keyed by name and type.
+ */
+public final class InMemoryRecorder implements UserMetrics.Recorder {
+
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(final String name, final String type, final long value) {
+        histogram(name, type).record(value);
+    }
+
+    @Override
+    public void count(final String name, final String type, final long amount) {
+        counters.computeIfAbsent(UserMetrics.key(name, type), key -> new LongAdder()).add(amount);
+    }
+
+    public Histogram histogram(final String name, final String type) {
+        return histograms.computeIfAbsent(UserMetrics.key(name, type), key -> new Histogram());
+    }
+
+    public long counter(final String name, final String type) {
+        final LongAdder counter = counters.get(UserMetrics.key(name, type));
+        return counter == null ? 0L : counter.sum();
+    }
+
+    /**
+     * Sorted summary of every metric, histograms as count, mean, p50, p90, p99 and max
+     */
+    public Map<String, Object> snapshot() {
+        final Map<String, Object> snapshot = new TreeMap<>();
+        histograms.forEach((key, histogram) -> {
+            final Map<String, Number> summary = new LinkedHashMap<>();
+            final long count = histogram.count();
+            summary.put("count", count);
+            summary.put("mean", count == 0 ? 0.0 : (double) histogram.sum() / count);
+            summary.put("p50", histogram.percentile(50));
+            summary.put("p90", histogram.percentile(90));
+            summary.put("p99", histogram.percentile(99));
+            summary.put("max", histogram.max());
+            snapshot.put(key, summary);
+        });
+        counters.forEach((key, counter) -> snapshot.put(key, counter.sum()));
+        return snapshot;
+    }
+}
@@ -0,0 +1,91 @@
+package com.builder.userexample.metrics;
+
+import java.util.Objects;
+
+/**
+ * Static entry point for the hot path instrumentation of factories, codecs and marshalling.
+ * <p>
+ * Nothing is recorded until a {@link Recorder} is installed, while disabled {@link #start()} returns {@code 0} without
+ * reading the clock and every other call returns after a single field read, so instrumented code pays next to nothing.
+ * Timers are named by one of the constants below and tagged with the user type, e.g. {@code UserWithRoles}.
+ */
+public final class UserMetrics {
+
+    /**
+     * Timer, {@code create(userId).withRoles(...)} style factory calls
+     */
+    public static final String CREATE = "user.create";
+    /**
+     * Timer, {@code create(StdUser)} conversions
+     */
+    public static final String CONVERT = "user.convert";
+    /**
+     * Timer, decoding a multi valued attribute
+     */
+    public static final String DECODE = "user.decode";
+    /**
+     * Counter, values rejected by a vocabulary
+     */
+    public static final String VALIDATION_FAILURE = "user.validation.failure";
+    /**
+     * Distribution, bytes written per serialized user
+     */
+    public static final String SERIALIZED_BYTES = "user.serialized.bytes";
+
+    private static volatile Recorder recorder = null;
+
+    private UserMetrics() {
+    }
+
+    /**
+     * Receives the measurements, implementations must be thread safe and should not block
+     */
+    public interface Recorder {
+        void record(String name, String type, long value);
+
+        void count(String name, String type, long amount);
+    }
+
+    /**
+     * Installs the recorder, {@code null} disables recording
+     */
+    public static void recorder(final Recorder recorder) {
+        UserMetrics.recorder = recorder;
+    }
+
+    public static boolean enabled() {
+        return recorder != null;
+    }
+
+    /**
+     * @return the start timestamp to pass to {@link #stop(String, String, long)}
+     */
+    public static long start() {
+        return recorder == null ? 0L : System.nanoTime();
+    }
+
+    public static void stop(final String name, final String type, final long start) {
+        final Recorder current = recorder;
+        if (current != null && start != 0L) {
+            current.record(name, type, System.nanoTime() - start);
+        }
+    }
+
+    public static void record(final String name, final String type, final long value) {
+        final Recorder current = recorder;
+        if (current != null) {
+            current.record(name, type, value);
+        }
+    }
+
+    public static void count(final String name, final String type) {
+        final Recorder current = recorder;
+        if (current != null) {
+            current.count(name, type, 1L);
+        }
+    }
+
+    static String key(final String name, final String type) {
+        return Objects.requireNonNull(name) + "{type=" + type + "}";
+    }
+}
@@ -0,0 +1,28 @@
+package com.builder.userexample.metrics;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Installs an {@link InMemoryRecorder}, served by {@link UserMetricsEndpoint}, when
+ * {@code userexample.metrics.enabled=true}, otherwise {@link UserMetrics} stays disabled.
+ */
+@Configuration
+@ConditionalOnProperty(name = "userexample.metrics.enabled", havingValue = "true")
+public class UserMetricsConfiguration {
+
+    @Bean
+    public InMemoryRecorder userMetricsRecorder() {
+        final InMemoryRecorder recorder = new InMemoryRecorder();
+        UserMetrics.recorder(recorder);
+        return recorder;
+    }
+
+    @PreDestroy
+    public void disable() {
+        UserMetrics.recorder(null);
+    }
+}
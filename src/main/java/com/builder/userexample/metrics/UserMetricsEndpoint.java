@@ -0,0 +1,26 @@
+package com.builder.userexample.metrics;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Serves the {@link InMemoryRecorder} snapshot on {@code /metrics/users}.
+ */
+@RestController
+@ConditionalOnProperty(name = "userexample.metrics.enabled", havingValue = "true")
+public class UserMetricsEndpoint {
+
+    private final InMemoryRecorder recorder;
+
+    public UserMetricsEndpoint(final InMemoryRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @GetMapping("/metrics/users")
+    public Map<String, Object> snapshot() {
+        return recorder.snapshot();
+    }
+}
@@ -0,0 +1,324 @@
+package com.builder.userexample.repository;
+
+import com.builder.userexample.client.Role;
+import com.builder.userexample.client.TrainingCourse;
+import com.builder.userexample.client.UserWithRoles;
+import com.builder.userexample.client.UserWithTrainingCompleted;
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.domain.VocabularySet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Thread safe in memory store of {@link StdUser}s keyed by {@code userId}.
+ * <p>
+ * Every user is given a dense ordinal on insert, role and training course membership is kept in inverted indexes of
+ * one {@link BitSet} over those ordinals per {@link Role} and {@link TrainingCourse}, so "all ADMINs" is a bitmap walk
+ * rather than a scan and decode of every user. The ordinal of a deleted user is handed out again, lowest first, so the
+ * bitmaps stay as large as the peak number of users rather than growing with churn. Writes to the same user are serialised on a lock stripe,
+ * reads of users never lock and index readers only contend with the short bitmap updates.
+ */
+public class UserRepository {
+
+    private static final int STRIPES = 64; // power of two
+
+    private final ConcurrentHashMap<String, Indexed> users = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private final Object[] stripes = new Object[STRIPES];
+    private final Index roleIndex = new Index(Role.values().length);
+    private final Index courseIndex = new Index(TrainingCourse.values().length);
+
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    private final Object ordinalLock = new Object();
+    private volatile String[] userIdsByOrdinal = new String[1024];
+    private int nextOrdinal = 0; // guarded by ordinalLock
+    private final BitSet freeOrdinals = new BitSet(); // guarded by ordinalLock, below nextOrdinal
+
+    public UserRepository() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    public Optional<StdUser> findById(final String userId) {
+        return Optional.ofNullable(users.get(userId)).map(indexed -> indexed.user);
+    }
+
+    /**
+     * Bulk lookup, unknown ids are skipped and the order of {@code userIds} is kept
+     */
+    public List<StdUser> findAllById(final Collection<String> userIds) {
+        final List<StdUser> found = new ArrayList<>(userIds.size());
+        for (final String userId : userIds) {
+            final Indexed indexed = users.get(userId);
+            if (indexed != null) {
+                found.add(indexed.user);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Inserts or replaces the user and updates the indexes
+     *
+     * @return the replaced user
+     */
+    public Optional<StdUser> save(final StdUser user) {
+        Objects.requireNonNull(user.userId, "userId");
+        final long roleMask = UserWithRoles.create(user).roleSet().mask();
+        final long courseMask = UserWithTrainingCompleted.create(user).trainingCompletedSet().mask();
+        final Indexed previous;
+        synchronized (stripe(user.userId)) {
+            final int ordinal = ordinal(user.userId);
+            previous = users.put(user.userId, new Indexed(user, ordinal, roleMask, courseMask));
+            roleIndex.update(ordinal, previous == null ? 0L : previous.roleMask, roleMask);
+            courseIndex.update(ordinal, previous == null ? 0L : previous.courseMask, courseMask);
+        }
+        changed(user.userId);
+        return Optional.ofNullable(previous).map(indexed -> indexed.user);
+    }
+
+    /**
+     * @return the removed user
+     */
+    public Optional<StdUser> delete(final String userId) {
+        final Indexed previous;
+        synchronized (stripe(userId)) {
+            previous = users.remove(userId);
+            if (previous != null) {
+                roleIndex.update(previous.ordinal, previous.roleMask, 0L);
+                courseIndex.update(previous.ordinal, previous.courseMask, 0L);
+                release(userId, previous.ordinal);
+            }
+        }
+        if (previous != null) {
+            changed(userId);
+        }
+        return Optional.ofNullable(previous).map(indexed -> indexed.user);
+    }
+
+    /**
+     * Registers a callback receiving the {@code userId} of every saved or deleted user, called after the change is
+     * visible, e.g. {@code repository.addListener(cache::invalidate)}
+     */
+    public void addListener(final Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Users holding every one of the roles, nobody for no roles
+     */
+    public List<StdUser> findByRole(final Role... roles) {
+        final long mask = VocabularySet.of(Role.class, roles).mask();
+        return resolve(roleIndex.matchAll(mask), mask, 0L);
+    }
+
+    /**
+     * Users who completed every one of the courses, nobody for no courses
+     */
+    public List<StdUser> findByTrainingCourse(final TrainingCourse... trainingCourses) {
+        final long mask = VocabularySet.of(TrainingCourse.class, trainingCourses).mask();
+        return resolve(courseIndex.matchAll(mask), 0L, mask);
+    }
+
+    /**
+     * Users holding every one of the roles who also completed every one of the courses, the two indexes are
+     * intersected before any user is looked up. An empty array does not restrict, both empty matches nobody.
+     */
+    public List<StdUser> findByRoleAndTrainingCourse(final Role[] roles, final TrainingCourse[] trainingCourses) {
+        final long roleMask = VocabularySet.of(Role.class, roles).mask();
+        final long courseMask = VocabularySet.of(TrainingCourse.class, trainingCourses).mask();
+        if (roleMask == 0L) {
+            return resolve(courseIndex.matchAll(courseMask), 0L, courseMask);
+        }
+        final BitSet matches = roleIndex.matchAll(roleMask);
+        if (courseMask != 0L) {
+            matches.and(courseIndex.matchAll(courseMask));
+        }
+        return resolve(matches, roleMask, courseMask);
+    }
+
+    public int countByRole(final Role role) {
+        return roleIndex.matchAll(VocabularySet.bit(role)).cardinality();
+    }
+
+    public int countByTrainingCourse(final TrainingCourse trainingCourse) {
+        return courseIndex.matchAll(VocabularySet.bit(trainingCourse)).cardinality();
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    /**
+     * Weakly consistent view of all users, see {@link ConcurrentHashMap#values()}
+     */
+    public Stream<StdUser> stream() {
+        return users.values().stream().map(indexed -> indexed.user);
+    }
+
+    private void changed(final String userId) {
+        for (final Consumer<String> listener : listeners) {
+            listener.accept(userId);
+        }
+    }
+
+    /**
+     * The users at the matching ordinals which still hold every role and course of the masks, an ordinal may have
+     * been released or handed to another user since the bitmaps were read
+     */
+    private List<StdUser> resolve(final BitSet matches, final long roleMask, final long courseMask) {
+        final String[] userIds = userIdsByOrdinal;
+        final List<StdUser> found = new ArrayList<>(matches.cardinality());
+        forEach(matches, ordinal -> {
+            final String userId = ordinal < userIds.length ? userIds[ordinal] : null;
+            final Indexed indexed = userId == null ? null : users.get(userId);
+            if (indexed != null && indexed.ordinal == ordinal
+                    && (indexed.roleMask & roleMask) == roleMask && (indexed.courseMask & courseMask) == courseMask) {
+                found.add(indexed.user);
+            }
+        });
+        return found;
+    }
+
+    private static void forEach(final BitSet bits, final IntConsumer action) {
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            action.accept(i);
+        }
+    }
+
+    private Object stripe(final String userId) {
+        return stripes[userId.hashCode() & (STRIPES - 1)];
+    }
+
+    /**
+     * The ordinal of a stored user or the lowest free one, must hold the stripe of {@code userId}
+     */
+    private int ordinal(final String userId) {
+        final Integer existing = ordinals.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (ordinalLock) {
+            return ordinals.computeIfAbsent(userId, id -> {
+                final int ordinal = freeOrdinals.isEmpty() ? nextOrdinal++ : freeOrdinals.nextSetBit(0);
+                freeOrdinals.clear(ordinal);
+                String[] userIds = userIdsByOrdinal;
+                if (ordinal == userIds.length) {
+                    userIds = Arrays.copyOf(userIds, userIds.length * 2);
+                }
+                userIds[ordinal] = id;
+                userIdsByOrdinal = userIds; // publish after the slot is written
+                return ordinal;
+            });
+        }
+    }
+
+    /**
+     * Frees the ordinal of a deleted user once its index bits are cleared, must hold the stripe of {@code userId}
+     */
+    private void release(final String userId, final int ordinal) {
+        synchronized (ordinalLock) {
+            ordinals.remove(userId);
+            final String[] userIds = userIdsByOrdinal;
+            userIds[ordinal] = null;
+            userIdsByOrdinal = userIds;
+            freeOrdinals.set(ordinal);
+        }
+    }
+
+    /**
+     * Ordinals handed out so far, the width of the index bitmaps
+     */
+    int ordinalCount() {
+        synchronized (ordinalLock) {
+            return nextOrdinal;
+        }
+    }
+
+    /**
+     * Snapshot of a stored user with its decoded masks, kept so index updates know which bits to clear
+     */
+    private static final class Indexed {
+        private final StdUser user;
+        private final int ordinal;
+        private final long roleMask;
+        private final long courseMask;
+
+        private Indexed(final StdUser user, final int ordinal, final long roleMask, final long courseMask) {
+            this.user = user;
+            this.ordinal = ordinal;
+            this.roleMask = roleMask;
+            this.courseMask = courseMask;
+        }
+    }
+
+    /**
+     * One bitmap of user ordinals per vocabulary constant
+     */
+    private static final class Index {
+        private final BitSet[] bitmaps;
+        private final StampedLock lock = new StampedLock();
+
+        private Index(final int size) {
+            this.bitmaps = new BitSet[size];
+            for (int i = 0; i < size; i++) {
+                bitmaps[i] = new BitSet();
+            }
+        }
+
+        private void update(final int ordinal, final long previousMask, final long mask) {
+            if (previousMask == mask) {
+                return;
+            }
+            final long stamp = lock.writeLock();
+            try {
+                for (int i = 0; i < bitmaps.length; i++) {
+                    final long bit = 1L << i;
+                    if ((mask & bit) != 0L) {
+                        bitmaps[i].set(ordinal);
+                    } else if ((previousMask & bit) != 0L) {
+                        bitmaps[i].clear(ordinal);
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * @return a private copy of the ordinals present in every bitmap selected by {@code mask}
+         */
+        private BitSet matchAll(final long mask) {
+            final long stamp = lock.readLock();
+            try {
+                BitSet result = null;
+                for (int i = 0; i < bitmaps.length; i++) {
+                    if ((mask & (1L << i)) != 0L) {
+                        if (result == null) {
+                            result = (BitSet) bitmaps[i].clone();
+                        } else {
+                            result.and(bitmaps[i]);
+                        }
+                    }
+                }
+                return result == null ? new BitSet() : result;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
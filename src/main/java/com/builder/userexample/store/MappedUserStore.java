@@ -0,0 +1,512 @@
+package com.builder.userexample.store;
+
+import com.builder.userexample.client.UserWithRoles;
+import com.builder.userexample.client.UserWithTrainingCompleted;
+import com.builder.userexample.domain.StdUser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Persists {@link StdUser} records in an append-only log of memory mapped segments. Reads decode a single record
+ * straight from the mapped pages, so opening a store only loads the userId index and never deserializes the users.
+ * <p>
+ * Each record is {@code [int length][int crc][byte type][payload]}, a length of {@code 0} marks the end of the log and
+ * {@code -1} pads the rest of a segment so no record spans two mappings. Replaced and deleted records stay in the log
+ * until {@link #compact()} rewrites the live ones; the index is written to {@code users.idx} at each
+ * {@link #checkpoint()} and only the records appended after it are scanned when the store is opened again.
+ * <p>
+ * Writers are serialized on the store, readers never block and keep reading the previous files while a compaction
+ * swaps them.
+ */
+public final class MappedUserStore implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    static final String LOG_FILE = "users.log";
+    static final String INDEX_FILE = "users.idx";
+    private static final String COMPACT_FILE = "users.log.compact";
+    private static final int INDEX_MAGIC = 0x55494432; // "UID2", ids as length prefixed UTF-8 like the records
+
+    private static final int HEADER = Integer.BYTES + Integer.BYTES + Byte.BYTES;
+    private static final int END = 0;
+    private static final int PADDING = -1;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private final Path directory;
+    private final int segmentSize;
+
+    private volatile Log log;
+    private final Set<String> userIds = new AbstractSet<String>() { // resolves the current log on every access
+        @Override
+        public Iterator<String> iterator() {
+            return Collections.unmodifiableSet(log.index.keySet()).iterator();
+        }
+
+        @Override
+        public int size() {
+            return log.index.size();
+        }
+
+        @Override
+        public boolean contains(final Object userId) {
+            return log.index.containsKey(userId);
+        }
+    };
+    private ScheduledExecutorService compactor; // guarded by this
+    private long compactionFailures; // guarded by this
+    private Exception lastCompactionFailure; // guarded by this
+    private boolean closed; // guarded by this
+
+    private MappedUserStore(final Path directory, final int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    public static MappedUserStore open(final Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens or creates the store in {@code directory}, the segment size must match the one the files were written with
+     * and bounds the size of a single record
+     */
+    public static MappedUserStore open(final Path directory, final int segmentSize) throws IOException {
+        if (segmentSize < 64) {
+            throw new IllegalArgumentException("segmentSize must be at least 64 bytes");
+        }
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(COMPACT_FILE)); // left over by an interrupted compaction
+        final MappedUserStore store = new MappedUserStore(directory, segmentSize);
+        final FileChannel channel = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final Log log = new Log(channel, segmentSize);
+        long from = 0;
+        if (store.readIndex(log)) {
+            from = log.end;
+        } else {
+            log.index.clear();
+            log.liveBytes = 0;
+            log.deadBytes = 0;
+        }
+        store.scan(log, from);
+        store.log = log;
+        return store;
+    }
+
+    public Optional<StdUser> get(final String userId) {
+        final Log log = this.log;
+        final Long offset = log.index.get(userId);
+        if (offset == null) {
+            return Optional.empty();
+        }
+        return Optional.of(UserRecords.decodeUser(payload(log, offset)));
+    }
+
+    public Optional<UserWithRoles> getUserWithRoles(final String userId) {
+        return get(userId).map(UserWithRoles::create);
+    }
+
+    public Optional<UserWithTrainingCompleted> getUserWithTrainingCompleted(final String userId) {
+        return get(userId).map(UserWithTrainingCompleted::create);
+    }
+
+    public boolean contains(final String userId) {
+        return log.index.containsKey(userId);
+    }
+
+    public int size() {
+        return log.index.size();
+    }
+
+    /**
+     * A live, unmodifiable view of the stored user ids which follows the store across compactions
+     */
+    public Set<String> userIds() {
+        return userIds;
+    }
+
+    public synchronized void put(final StdUser user) throws IOException {
+        ensureOpen();
+        append(log, PUT, user.userId, UserRecords.encodeUser(user));
+    }
+
+    public synchronized void putAll(final Iterable<? extends StdUser> users) throws IOException {
+        ensureOpen();
+        for (final StdUser user : users) {
+            append(log, PUT, user.userId, UserRecords.encodeUser(user));
+        }
+    }
+
+    /**
+     * Appends a tombstone, returns false without writing when the user is not stored
+     */
+    public synchronized boolean delete(final String userId) throws IOException {
+        ensureOpen();
+        if (!log.index.containsKey(userId)) {
+            return false;
+        }
+        append(log, DELETE, userId, UserRecords.encodeUserId(userId));
+        return true;
+    }
+
+    /**
+     * Forces the mapped segments to disk
+     */
+    public synchronized void flush() {
+        ensureOpen();
+        for (final MappedByteBuffer segment : log.segments) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Flushes the log and writes the userId index, the next {@link #open} scans only what is appended after this
+     */
+    public synchronized void checkpoint() throws IOException {
+        flush();
+        writeIndex(log);
+    }
+
+    /**
+     * The share of the log taken by replaced or deleted records
+     */
+    public synchronized double wasteRatio() {
+        final long total = log.liveBytes + log.deadBytes;
+        return total == 0 ? 0 : (double) log.deadBytes / total;
+    }
+
+    /**
+     * Compacts when at least {@code threshold} of the log is waste, returns whether it did
+     */
+    public synchronized boolean compactIfWasteful(final double threshold) throws IOException {
+        if (closed || log.deadBytes == 0 || wasteRatio() < threshold) {
+            return false;
+        }
+        compact();
+        return true;
+    }
+
+    /**
+     * Rewrites the live records in offset order into a new log, swaps it in and writes a fresh index
+     */
+    public synchronized void compact() throws IOException {
+        ensureOpen();
+        final Log current = this.log;
+        final Path compactPath = directory.resolve(COMPACT_FILE);
+        Files.deleteIfExists(compactPath);
+        final Log compacted = new Log(FileChannel.open(compactPath,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE), segmentSize);
+        try {
+            final List<Map.Entry<String, Long>> live = new ArrayList<>(current.index.entrySet());
+            live.sort(Map.Entry.comparingByValue());
+            for (final Map.Entry<String, Long> entry : live) {
+                final ByteBuffer payload = payload(current, entry.getValue());
+                final byte[] bytes = new byte[payload.remaining()];
+                payload.get(bytes);
+                append(compacted, PUT, entry.getKey(), bytes);
+            }
+            for (final MappedByteBuffer segment : compacted.segments) {
+                segment.force();
+            }
+            Files.deleteIfExists(directory.resolve(INDEX_FILE)); // its offsets are only valid for the previous log
+            Files.move(compactPath, directory.resolve(LOG_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            compacted.channel.close();
+            Files.deleteIfExists(compactPath);
+            throw e;
+        }
+        this.log = compacted;
+        current.channel.close(); // mappings stay valid for readers still holding the previous log
+        writeIndex(compacted);
+    }
+
+    /**
+     * Starts a daemon thread which calls {@link #compactIfWasteful(double)} every {@code period}, the thread stops when
+     * the store is closed. A failed compaction is counted in {@link #compactionFailures()} and retried at the next
+     * period.
+     */
+    public synchronized void compactPeriodically(final Duration period, final double threshold) {
+        ensureOpen();
+        if (compactor != null) {
+            throw new IllegalStateException("periodic compaction already started");
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "user-store-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                compactIfWasteful(threshold);
+            } catch (IOException | RuntimeException e) {
+                // an escaping exception would cancel the schedule for good
+                synchronized (this) {
+                    compactionFailures++;
+                    lastCompactionFailure = e;
+                }
+            }
+        }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Periodic compactions which failed since the store was opened
+     */
+    public synchronized long compactionFailures() {
+        return compactionFailures;
+    }
+
+    /**
+     * The exception of the most recent failed periodic compaction, {@code null} if none failed
+     */
+    public synchronized Exception lastCompactionFailure() {
+        return lastCompactionFailure;
+    }
+
+    /**
+     * Checkpoints and releases the log, readers holding a returned user are unaffected
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+        checkpoint();
+        closed = true;
+        log.channel.close();
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("store is closed");
+        }
+    }
+
+    private void append(final Log log, final byte type, final String userId, final byte[] payload) throws IOException {
+        final int length = HEADER + payload.length;
+        if (length > segmentSize - Integer.BYTES) { // always leave room for the end marker
+            throw new IllegalArgumentException("record for " + userId + " is larger than the segment size");
+        }
+        long position = log.end;
+        int within = (int) (position % segmentSize);
+        if (within + length > segmentSize - Integer.BYTES) {
+            log.segment(position / segmentSize, true).putInt(within, PADDING);
+            position += segmentSize - within;
+            within = 0;
+        }
+        final MappedByteBuffer segment = log.segment(position / segmentSize, true);
+        final ByteBuffer target = segment.duplicate();
+        target.position(within + Integer.BYTES);
+        target.putInt(crc(type, payload, 0, payload.length)).put(type).put(payload);
+        target.putInt(END); // the next record position reads as the end of the log until it is written
+        segment.putInt(within, payload.length); // written last, a torn record fails its crc on the next scan
+        log.end = position + length;
+        apply(log, type, userId, position, length);
+    }
+
+    private void apply(final Log log, final byte type, final String userId, final long position, final int length) {
+        final Long previous = type == PUT ? log.index.put(userId, position) : log.index.remove(userId);
+        if (previous != null) {
+            final int previousLength = HEADER + log.segment(previous / segmentSize, false).getInt((int) (previous % segmentSize));
+            log.liveBytes -= previousLength;
+            log.deadBytes += previousLength;
+        }
+        if (type == PUT) {
+            log.liveBytes += length;
+        } else {
+            log.deadBytes += length;
+        }
+    }
+
+    /**
+     * Replays records from {@code position} into the index, stopping at the end marker or the first torn record
+     */
+    private void scan(final Log log, long position) throws IOException {
+        final long fileSize = log.channel.size();
+        while (position + HEADER <= fileSize) {
+            final int within = (int) (position % segmentSize);
+            if (within + HEADER > segmentSize) {
+                position += segmentSize - within;
+                continue;
+            }
+            final MappedByteBuffer segment = log.segment(position / segmentSize, false);
+            final int length = segment.getInt(within);
+            if (length == PADDING) {
+                position += segmentSize - within;
+                continue;
+            }
+            if (length <= END || within + HEADER + length > segmentSize) {
+                break;
+            }
+            final ByteBuffer record = segment.duplicate();
+            record.position(within + Integer.BYTES);
+            final int crc = record.getInt();
+            final byte type = record.get();
+            record.limit(within + HEADER + length);
+            final byte[] payload = new byte[length];
+            record.get(payload);
+            if ((type != PUT && type != DELETE) || crc != crc(type, payload, 0, length)) {
+                break;
+            }
+            final String userId = UserRecords.decodeUserId(ByteBuffer.wrap(payload));
+            apply(log, type, userId, position, HEADER + length);
+            position += HEADER + length;
+        }
+        log.end = position;
+    }
+
+    private ByteBuffer payload(final Log log, final long offset) {
+        final MappedByteBuffer segment = log.segment(offset / segmentSize, false);
+        final int within = (int) (offset % segmentSize);
+        final ByteBuffer payload = segment.duplicate();
+        payload.limit(within + HEADER + segment.getInt(within)).position(within + HEADER);
+        return payload;
+    }
+
+    private static int crc(final byte type, final byte[] payload, final int offset, final int length) {
+        final CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private void writeIndex(final Log log) throws IOException {
+        final Path temporary = directory.resolve(INDEX_FILE + ".tmp");
+        final CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary)), crc))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(segmentSize);
+            out.writeLong(log.end);
+            out.writeLong(log.liveBytes);
+            out.writeLong(log.deadBytes);
+            out.writeInt(log.index.size());
+            for (final Map.Entry<String, Long> entry : log.index.entrySet()) {
+                final byte[] userId = entry.getKey().getBytes(StandardCharsets.UTF_8); // writeUTF would cap modified UTF-8 instead
+                out.writeShort(userId.length);
+                out.write(userId);
+                out.writeLong(entry.getValue());
+            }
+            out.flush();
+            out.writeInt((int) crc.getValue()); // checksum of everything written before it
+        }
+        Files.move(temporary, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the index written by the last checkpoint, false when it is missing, corrupt or does not match the log
+     */
+    private boolean readIndex(final Log log) throws IOException {
+        final CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(directory.resolve(INDEX_FILE))), crc))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != segmentSize) {
+                return false;
+            }
+            final long end = in.readLong();
+            final long liveBytes = in.readLong();
+            final long deadBytes = in.readLong();
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final byte[] userId = new byte[in.readUnsignedShort()];
+                in.readFully(userId);
+                log.index.put(new String(userId, StandardCharsets.UTF_8), in.readLong());
+            }
+            final int expected = (int) crc.getValue();
+            if (in.readInt() != expected || end > log.channel.size()) {
+                return false;
+            }
+            log.end = end;
+            log.liveBytes = liveBytes;
+            log.deadBytes = deadBytes;
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            return false; // truncated or unreadable, the log is rescanned from the start
+        }
+    }
+
+    /**
+     * One generation of the log file, replaced as a whole by {@link #compact()}
+     */
+    private static final class Log {
+        final FileChannel channel;
+        final int segmentSize;
+        final ConcurrentHashMap<String, Long> index = new ConcurrentHashMap<>();
+        volatile MappedByteBuffer[] segments = new MappedByteBuffer[0]; // grown by the writer only
+        long end; // guarded by the store
+        long liveBytes; // guarded by the store
+        long deadBytes; // guarded by the store
+
+        Log(final FileChannel channel, final int segmentSize) {
+            this.channel = channel;
+            this.segmentSize = segmentSize;
+        }
+
+        /**
+         * Maps segments up to {@code number}, growing the file only when {@code create} is set. Readers only ask for
+         * segments an index entry points to, which were mapped before that entry was published.
+         */
+        MappedByteBuffer segment(final long number, final boolean create) {
+            final MappedByteBuffer[] mapped = segments;
+            if (number < mapped.length) {
+                return mapped[(int) number];
+            }
+            synchronized (this) {
+                MappedByteBuffer[] grown = segments;
+                if (number < grown.length) {
+                    return grown[(int) number];
+                }
+                try {
+                    if (!create && (number + 1) * segmentSize > channel.size()) {
+                        throw new IllegalStateException("segment " + number + " is beyond the end of the log");
+                    }
+                    grown = Arrays.copyOf(grown, (int) number + 1);
+                    for (int i = segments.length; i <= number; i++) {
+                        grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * segmentSize, segmentSize);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                segments = grown;
+                return grown[(int) number];
+            }
+        }
+    }
+}
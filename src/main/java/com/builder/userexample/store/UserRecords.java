@@ -0,0 +1,121 @@
+package com.builder.userexample.store;
+
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.domain.TypedView;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Binary form of a {@link StdUser} as stored by {@link MappedUserStore}: the user id, the attribute count and each
+ * key and value as length prefixed UTF-8, a value length of {@code -1} standing for {@code null}.
+ */
+final class UserRecords {
+
+    private UserRecords() {
+    }
+
+    static byte[] encodeUser(final StdUser user) {
+        final Map<String, String> attributes = Record.attributes(user);
+        final byte[] userId = utf8(user.userId);
+        final byte[][] keys = new byte[attributes.size()][];
+        final byte[][] values = new byte[attributes.size()][];
+        int size = Short.BYTES + userId.length + Integer.BYTES;
+        int i = 0;
+        for (final Map.Entry<String, String> attribute : attributes.entrySet()) {
+            keys[i] = utf8(attribute.getKey());
+            values[i] = attribute.getValue() == null ? null : utf8(attribute.getValue());
+            size += Short.BYTES + keys[i].length + Integer.BYTES + (values[i] == null ? 0 : values[i].length);
+            i++;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        putShortString(buffer, userId);
+        buffer.putInt(keys.length);
+        for (i = 0; i < keys.length; i++) {
+            putShortString(buffer, keys[i]);
+            if (values[i] == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(values[i].length).put(values[i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    static byte[] encodeUserId(final String userId) {
+        final byte[] bytes = utf8(userId);
+        return putShortString(ByteBuffer.allocate(Short.BYTES + bytes.length), bytes).array();
+    }
+
+    static String decodeUserId(final ByteBuffer payload) {
+        return getShortString(payload);
+    }
+
+    /**
+     * Decodes a payload written by {@link #encodeUser(StdUser)}, reading from the buffer's position
+     */
+    static StdUser decodeUser(final ByteBuffer payload) {
+        final String userId = getShortString(payload);
+        final int count = payload.getInt();
+        final Map<String, String> attributes = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            final String key = getShortString(payload);
+            final int length = payload.getInt();
+            attributes.put(key, length < 0 ? null : getString(payload, length));
+        }
+        return Record.user(userId, attributes);
+    }
+
+    private static byte[] utf8(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer putShortString(final ByteBuffer buffer, final byte[] bytes) {
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("user ids and attribute keys are limited to 65535 bytes");
+        }
+        return buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getShortString(final ByteBuffer buffer) {
+        return getString(buffer, Short.toUnsignedInt(buffer.getShort()));
+    }
+
+    private static String getString(final ByteBuffer buffer, final int length) {
+        if (buffer.hasArray()) {
+            final String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Attribute map access to the users stored, declaring no attributes of its own
+     */
+    private static final class Record extends TypedView<Record> {
+
+        private static final Declaration<Record> DECLARATION = Declaration.of(Record.class, Record::new);
+
+        private Record(final StdUser stdUser) {
+            super(stdUser);
+        }
+
+        @Override
+        protected Declaration<Record> declaration() {
+            return DECLARATION;
+        }
+
+        private static Map<String, String> attributes(final StdUser user) {
+            return new Record(user).attributes();
+        }
+
+        private static StdUser user(final String userId, final Map<String, String> attributes) {
+            return userOf(userId, attributes);
+        }
+    }
+}
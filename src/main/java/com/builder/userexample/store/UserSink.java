@@ -0,0 +1,48 @@
+package com.builder.userexample.store;
+
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.stream.UserNdjsonWriter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Downstream persistence receiving the batches of a {@link UserWriteBehind}. Batches are delivered one at a time from
+ * a single thread, in the order the users were first updated; an exception leaves the batch queued for a retry.
+ */
+@FunctionalInterface
+public interface UserSink extends AutoCloseable {
+
+    void write(List<StdUser> batch) throws IOException;
+
+    /**
+     * Called once when the write-behind queue is closed, after the last batch
+     */
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Appends each batch to the NDJSON file or stream and flushes it, the writer is closed with the sink
+     */
+    static UserSink ndjson(final UserNdjsonWriter writer) {
+        return new UserSink() {
+            @Override
+            public void write(final List<StdUser> batch) throws IOException {
+                writer.writeAll(batch).flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                writer.close();
+            }
+        };
+    }
+
+    /**
+     * Appends each batch to the store, which stays open as other readers usually share it
+     */
+    static UserSink store(final MappedUserStore store) {
+        return store::putAll;
+    }
+}
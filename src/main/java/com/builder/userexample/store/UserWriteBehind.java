@@ -0,0 +1,345 @@
+package com.builder.userexample.store;
+
+import com.builder.userexample.domain.StdUser;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind queue between user updates and a {@link UserSink}. Updates to the same userId which are still pending
+ * are coalesced, only the latest version is written, and pending users are flushed in batches of up to
+ * {@code batchSize} once a batch is full or the oldest pending update has waited for {@code window}.
+ * <p>
+ * Memory is bounded by {@code maxPending} users plus the batch being written: when the queue is full
+ * {@link #submit(StdUser)} blocks and {@link #offer(StdUser, Duration)} gives up after its timeout, unless the update
+ * replaces a pending one. A failing sink keeps its batch queued ahead of later updates and is retried after a window.
+ */
+public final class UserWriteBehind implements AutoCloseable {
+
+    private final UserSink sink;
+    private final int batchSize;
+    private final int maxPending;
+    private final long windowNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition ready = lock.newCondition();
+    private final ReentrantLock writeLock = new ReentrantLock(); // held while draining and writing, keeps batches ordered
+    private LinkedHashMap<String, StdUser> pending = new LinkedHashMap<>(); // guarded by lock, first update order
+    private long oldestPendingNanos; // guarded by lock
+    private boolean closed; // guarded by lock
+    private IOException lastFailure; // guarded by lock
+
+    private long submitted; // guarded by lock
+    private long coalesced; // guarded by lock
+    private long batches; // guarded by lock
+    private long written; // guarded by lock
+    private long failures; // guarded by lock
+
+    private final Thread flusher;
+
+    private UserWriteBehind(final UserSink sink, final int batchSize, final int maxPending, final Duration window) {
+        if (batchSize < 1 || maxPending < batchSize) {
+            throw new IllegalArgumentException("batchSize must be positive and maxPending at least batchSize");
+        }
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.windowNanos = window.toNanos();
+        this.flusher = new Thread(this::run, "user-write-behind");
+        this.flusher.setDaemon(true);
+    }
+
+    /**
+     * Static factory method, starts the flushing thread
+     */
+    public static UserWriteBehind create(final UserSink sink, final int batchSize, final int maxPending, final Duration window) {
+        final UserWriteBehind writeBehind = new UserWriteBehind(sink, batchSize, maxPending, window);
+        writeBehind.flusher.start();
+        return writeBehind;
+    }
+
+    /**
+     * Queues the update, blocking while the queue is full
+     */
+    public void submit(final StdUser user) throws InterruptedException {
+        lock.lock();
+        try {
+            while (!accept(user)) {
+                notFull.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues the update, waiting at most {@code timeout} for space
+     *
+     * @return false when the queue stayed full
+     */
+    public boolean offer(final StdUser user, final Duration timeout) throws InterruptedException {
+        long remaining = timeout.toNanos();
+        lock.lock();
+        try {
+            while (!accept(user)) {
+                if (remaining <= 0L) {
+                    return false;
+                }
+                remaining = notFull.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean accept(final StdUser user) {
+        if (closed) {
+            throw new IllegalStateException("write-behind queue is closed");
+        }
+        final boolean replaces = pending.containsKey(user.userId);
+        if (!replaces && pending.size() >= maxPending) {
+            return false;
+        }
+        final boolean first = pending.isEmpty();
+        if (first) {
+            oldestPendingNanos = System.nanoTime();
+        }
+        pending.put(user.userId, user); // a replaced user keeps its place in the order
+        submitted++;
+        if (replaces) {
+            coalesced++;
+        }
+        if (first || pending.size() >= batchSize) {
+            ready.signal(); // the flusher starts timing the window or writes a full batch
+        }
+        return true;
+    }
+
+    /**
+     * Writes everything pending on the calling thread, returns once it reached the sink
+     *
+     * @throws IOException the sink failure, the users stay queued
+     */
+    public void flush() throws IOException {
+        writeLock.lock();
+        try {
+            while (writeBatch(true)) {
+                // until nothing is pending
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int pending() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(submitted, coalesced, batches, written, failures);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting updates, writes what is pending and closes the sink
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            ready.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } finally {
+            sink.close();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            lock.lock();
+            try {
+                while (!closed && !due()) {
+                    if (pending.isEmpty()) {
+                        ready.await();
+                    } else {
+                        ready.awaitNanos(Math.max(1L, oldestPendingNanos + windowNanos - System.nanoTime()));
+                    }
+                }
+                if (closed) {
+                    return; // close() writes the rest
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            boolean failed = false;
+            writeLock.lock();
+            try {
+                writeBatch(false);
+            } catch (IOException | RuntimeException e) {
+                failed = true; // the batch was put back
+            } finally {
+                writeLock.unlock();
+            }
+            if (failed) {
+                pause(); // retry after a window, flush() and close() may write in the meantime
+            }
+        }
+    }
+
+    private boolean due() {
+        return pending.size() >= batchSize || (!pending.isEmpty() && System.nanoTime() - oldestPendingNanos >= windowNanos);
+    }
+
+    private void pause() {
+        lock.lock();
+        try {
+            if (!closed) {
+                ready.awaitNanos(windowNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drains up to one batch and writes it, must hold {@link #writeLock}
+     *
+     * @param all whether to write a partial batch
+     * @return whether a batch was written
+     */
+    private boolean writeBatch(final boolean all) throws IOException {
+        final List<StdUser> batch = new ArrayList<>(batchSize);
+        lock.lock();
+        try {
+            if (pending.isEmpty() || (!all && !due())) {
+                return false;
+            }
+            final Iterator<StdUser> users = pending.values().iterator();
+            while (users.hasNext() && batch.size() < batchSize) {
+                batch.add(users.next());
+                users.remove();
+            }
+            oldestPendingNanos = System.nanoTime(); // the remainder is considered from now on
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            sink.write(batch);
+        } catch (IOException | RuntimeException e) {
+            requeue(batch, e instanceof IOException ? (IOException) e : new IOException(e));
+            throw e;
+        }
+        lock.lock();
+        try {
+            batches++;
+            written += batch.size();
+            lastFailure = null;
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Puts a failed batch back ahead of the pending users, skipping those updated again in the meantime
+     */
+    private void requeue(final List<StdUser> batch, final IOException failure) {
+        lock.lock();
+        try {
+            final LinkedHashMap<String, StdUser> requeued = new LinkedHashMap<>();
+            for (final StdUser user : batch) {
+                if (pending.containsKey(user.userId)) {
+                    coalesced++; // superseded while the batch was being written
+                } else {
+                    requeued.put(user.userId, user);
+                }
+            }
+            for (final Map.Entry<String, StdUser> entry : pending.entrySet()) {
+                requeued.put(entry.getKey(), entry.getValue());
+            }
+            if (pending.isEmpty()) {
+                oldestPendingNanos = System.nanoTime();
+            }
+            pending = requeued;
+            failures++;
+            lastFailure = failure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The most recent sink failure, {@code null} once a later batch succeeded
+     */
+    public IOException lastFailure() {
+        lock.lock();
+        try {
+            return lastFailure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counters since creation, {@code submitted - coalesced - written} users are pending or in flight
+     */
+    public static final class Stats {
+        public final long submitted;
+        public final long coalesced;
+        public final long batches;
+        public final long written;
+        public final long failures;
+
+        private Stats(final long submitted, final long coalesced, final long batches, final long written, final long failures) {
+            this.submitted = submitted;
+            this.coalesced = coalesced;
+            this.batches = batches;
+            this.written = written;
+            this.failures = failures;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats[submitted=" + submitted + ", coalesced=" + coalesced + ", batches=" + batches
+                    + ", written=" + written + ", failures=" + failures + "]";
+        }
+    }
+}
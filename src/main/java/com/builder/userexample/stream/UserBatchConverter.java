@@ -0,0 +1,131 @@
+package com.builder.userexample.stream;
+
+import com.builder.userexample.domain.StdUser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Converts batches of {@link StdUser} into typed views, or anything else, on a dedicated {@link ForkJoinPool}.
+ * <p>
+ * Input is cut into chunks which are converted concurrently, results are always returned in input order. Streams are
+ * consumed with back pressure, at most {@code maxChunksInFlight} chunks are read ahead of the consumer so an unbounded
+ * source is converted in constant memory.
+ */
+public final class UserBatchConverter implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+
+    private UserBatchConverter(final int parallelism, final int chunkSize, final int maxChunksInFlight) {
+        if (parallelism < 1 || chunkSize < 1 || maxChunksInFlight < 1) {
+            throw new IllegalArgumentException("parallelism, chunkSize and maxChunksInFlight must be positive");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = maxChunksInFlight;
+    }
+
+    /**
+     * Static factory method
+     */
+    public static UserBatchConverter create(final int parallelism, final int chunkSize, final int maxChunksInFlight) {
+        return new UserBatchConverter(parallelism, chunkSize, maxChunksInFlight);
+    }
+
+    /**
+     * Static factory method using every available core, chunks of 1024 users and two chunks in flight per thread
+     */
+    public static UserBatchConverter create() {
+        final int parallelism = Runtime.getRuntime().availableProcessors();
+        return new UserBatchConverter(parallelism, 1024, parallelism * 2);
+    }
+
+    /**
+     * Converts the whole collection, blocking until every chunk is done
+     */
+    public <T> List<T> convert(final Collection<? extends StdUser> users, final Function<? super StdUser, ? extends T> conversion) {
+        final List<T> results = new ArrayList<>(users.size());
+        convert(users.stream(), conversion).forEachOrdered(results::add);
+        return results;
+    }
+
+    /**
+     * Lazily converts the stream, the source is only pulled as results are consumed
+     */
+    public <T> Stream<T> convert(final Stream<? extends StdUser> users, final Function<? super StdUser, ? extends T> conversion) {
+        final Iterator<T> results = new ChunkIterator<>(users.iterator(), conversion);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED), false)
+                .onClose(users::close);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Keeps up to {@code maxChunksInFlight} chunks submitted and hands out results from the oldest
+     */
+    private final class ChunkIterator<T> implements Iterator<T> {
+        private final Iterator<? extends StdUser> source;
+        private final Function<? super StdUser, ? extends T> conversion;
+        private final ArrayDeque<ForkJoinTask<List<T>>> inFlight = new ArrayDeque<>(maxChunksInFlight);
+        private Iterator<T> current = Collections.emptyIterator();
+
+        private ChunkIterator(final Iterator<? extends StdUser> source, final Function<? super StdUser, ? extends T> conversion) {
+            this.source = source;
+            this.conversion = conversion;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                fill();
+                final ForkJoinTask<List<T>> next = inFlight.poll();
+                if (next == null) {
+                    return false;
+                }
+                current = next.join().iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        private void fill() {
+            while (inFlight.size() < maxChunksInFlight && source.hasNext()) {
+                final List<StdUser> chunk = new ArrayList<>(chunkSize);
+                while (chunk.size() < chunkSize && source.hasNext()) {
+                    chunk.add(source.next());
+                }
+                inFlight.add(pool.submit(() -> {
+                    final List<T> converted = new ArrayList<>(chunk.size());
+                    for (final StdUser user : chunk) {
+                        converted.add(conversion.apply(user));
+                    }
+                    return converted;
+                }));
+            }
+        }
+    }
+}
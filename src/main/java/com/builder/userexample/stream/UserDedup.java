@@ -0,0 +1,76 @@
+package com.builder.userexample.stream;
+
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.domain.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Removes duplicates from large user collections using the value equality of {@link StdUser} and the typed views.
+ * Only users of the same class are duplicates, a view never replaces the {@link StdUser} it wraps or the reverse.
+ * <p>
+ * Instead of a {@code HashSet} node per user the table is a pair of {@code int} arrays keyed by the user's cached hash
+ * code, {@code equals} only runs when two hashes collide, so deduplicating a million users allocates a few megabytes
+ * of primitive arrays besides the result.
+ */
+public final class UserDedup {
+
+    private UserDedup() {
+    }
+
+    /**
+     * @return the first occurrence of every distinct user, in encounter order
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends User> List<T> distinct(final Collection<? extends T> users) {
+        final Object[] values = users.toArray();
+        final int mask = tableSize(values.length) - 1;
+        final int[] slots = new int[mask + 1]; // index + 1 of the kept user, 0 when free
+        final int[] hashes = new int[mask + 1];
+        final List<T> distinct = new ArrayList<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            final Object user = values[i];
+            final int hash = spread(user.hashCode());
+            int slot = hash & mask;
+            boolean duplicate = false;
+            while (slots[slot] != 0) {
+                final Object kept = values[slots[slot] - 1];
+                if (hashes[slot] == hash && kept.getClass() == user.getClass() && kept.equals(user)) {
+                    duplicate = true;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (!duplicate) {
+                slots[slot] = i + 1;
+                hashes[slot] = hash;
+                distinct.add((T) user);
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Keeps one version per userId, the last one encountered, in the order the userIds were first seen
+     */
+    public static List<StdUser> latestPerUser(final Iterable<? extends StdUser> users) {
+        final Map<String, StdUser> latest = new LinkedHashMap<>();
+        for (final StdUser user : users) {
+            latest.put(user.userId, user);
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    private static int tableSize(final int count) {
+        return Integer.highestOneBit(Math.max(2, count) * 2 - 1) << 1; // load factor at most one half
+    }
+
+    private static int spread(final int hash) {
+        final int mixed = hash * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+}
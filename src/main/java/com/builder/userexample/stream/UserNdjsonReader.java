@@ -0,0 +1,81 @@
+package com.builder.userexample.stream;
+
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.domain.User;
+import com.builder.userexample.json.UserJson;
+import com.fasterxml.jackson.databind.MappingIterator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates newline delimited JSON user records one at a time, only the record being read is held in memory so inputs
+ * of any size can be processed.
+ * <p>
+ * Records are bound to the requested type directly, {@link StdUser} for the bare form or a typed view such as
+ * {@code UserWithRoles} for the {@code {"userWithRoles":{...}}} envelope. Conversion from {@link StdUser} to a typed
+ * view can be done lazily by mapping the {@link #stream()}.
+ */
+public final class UserNdjsonReader<T extends User> implements Iterator<T>, Closeable {
+
+    private final MappingIterator<T> records;
+
+    private UserNdjsonReader(final MappingIterator<T> records) {
+        this.records = records;
+    }
+
+    /**
+     * Static factory method, the stream is closed with the reader
+     */
+    public static <T extends User> UserNdjsonReader<T> open(final InputStream in, final Class<T> type) throws IOException {
+        return new UserNdjsonReader<>(UserJson.reader(type).readValues(in));
+    }
+
+    /**
+     * Static factory method
+     */
+    public static <T extends User> UserNdjsonReader<T> open(final Path path, final Class<T> type) throws IOException {
+        return open(Files.newInputStream(path), type);
+    }
+
+    /**
+     * @throws com.fasterxml.jackson.databind.RuntimeJsonMappingException when the next record is malformed
+     */
+    @Override
+    public boolean hasNext() {
+        return records.hasNext();
+    }
+
+    @Override
+    public T next() {
+        return records.next();
+    }
+
+    /**
+     * A sequential stream over the remaining records, closing the stream closes the reader
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws IOException {
+        records.close();
+    }
+}
@@ -0,0 +1,82 @@
+package com.builder.userexample.stream;
+
+import com.builder.userexample.domain.User;
+import com.builder.userexample.json.CountingOutputStream;
+import com.builder.userexample.json.UserJson;
+import com.builder.userexample.metrics.UserMetrics;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes user records as newline delimited JSON straight into the target stream through a single
+ * {@link JsonGenerator}, nothing is buffered beyond the generator's own output buffer.
+ */
+public final class UserNdjsonWriter implements Closeable, Flushable {
+
+    private final JsonGenerator generator;
+    private final CountingOutputStream counter;
+
+    private UserNdjsonWriter(final JsonGenerator generator, final CountingOutputStream counter) {
+        this.generator = generator.setRootValueSeparator(null); // records are terminated with a newline instead
+        this.counter = counter;
+    }
+
+    /**
+     * Static factory method, the stream is closed with the writer
+     */
+    public static UserNdjsonWriter open(final OutputStream out) throws IOException {
+        final CountingOutputStream counter = new CountingOutputStream(out);
+        return new UserNdjsonWriter(UserJson.mapper().getFactory().createGenerator(counter, JsonEncoding.UTF8), counter);
+    }
+
+    /**
+     * Static factory method, an existing file is truncated
+     */
+    public static UserNdjsonWriter open(final Path path) throws IOException {
+        return open(Files.newOutputStream(path));
+    }
+
+    /**
+     * Writes one record followed by a newline
+     */
+    public UserNdjsonWriter write(final User user) throws IOException {
+        final long before = UserMetrics.enabled() ? bytesWritten() : 0L;
+        UserJson.unflushedWriter(user.getClass()).writeValue(generator, user);
+        generator.writeRaw('\n');
+        if (UserMetrics.enabled()) {
+            UserJson.serialized(user, bytesWritten() - before);
+        }
+        return this;
+    }
+
+    /**
+     * Bytes produced so far, including those still buffered in the generator
+     */
+    public long bytesWritten() {
+        return counter.count() + generator.getOutputBuffered();
+    }
+
+    public UserNdjsonWriter writeAll(final Iterable<? extends User> users) throws IOException {
+        for (final User user : users) {
+            write(user);
+        }
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
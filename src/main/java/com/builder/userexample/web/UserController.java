@@ -0,0 +1,129 @@
+package com.builder.userexample.web;
+
+import com.builder.userexample.client.Role;
+import com.builder.userexample.client.TrainingCourse;
+import com.builder.userexample.client.UserWithRoles;
+import com.builder.userexample.client.UserWithTrainingCompleted;
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.repository.UserRepository;
+import com.builder.userexample.stream.UserNdjsonWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * User CRUD, bulk and index backed query endpoints over the {@link UserRepository}.
+ * <p>
+ * Every handler returns a {@link CompletableFuture} completed on the {@code userRequestExecutor}, see
+ * {@link WebMode}. Users are written by Jackson straight into the response, {@code /users/export} streams every user
+ * as newline delimited JSON without collecting them first.
+ */
+@RestController
+@RequestMapping("/users")
+public class UserController {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private final UserRepository repository;
+    private final Executor executor;
+
+    public UserController(final UserRepository repository, @Qualifier("userRequestExecutor") final Executor executor) {
+        this.repository = repository;
+        this.executor = executor;
+    }
+
+    @GetMapping("/{userId}")
+    public CompletableFuture<StdUser> get(@PathVariable final String userId) {
+        return async(() -> found(repository.findById(userId), Function.identity()));
+    }
+
+    @GetMapping("/{userId}/roles")
+    public CompletableFuture<UserWithRoles> getWithRoles(@PathVariable final String userId) {
+        return async(() -> found(repository.findById(userId), UserWithRoles::create));
+    }
+
+    @GetMapping("/{userId}/training")
+    public CompletableFuture<UserWithTrainingCompleted> getWithTrainingCompleted(@PathVariable final String userId) {
+        return async(() -> found(repository.findById(userId), UserWithTrainingCompleted::create));
+    }
+
+    /**
+     * Inserts or replaces the user, the id in the path must match the body
+     */
+    @PutMapping("/{userId}")
+    public CompletableFuture<ResponseEntity<StdUser>> upsert(@PathVariable final String userId, @RequestBody final StdUser user) {
+        if (!userId.equals(user.userId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "user_id does not match the path");
+        }
+        return async(() -> repository.save(user).isPresent() ? ResponseEntity.ok(user) : ResponseEntity.status(HttpStatus.CREATED).body(user));
+    }
+
+    /**
+     * Looks up many users in one request, unknown ids are omitted
+     */
+    @PostMapping("/bulk")
+    public CompletableFuture<List<StdUser>> bulkGet(@RequestBody final List<String> userIds) {
+        return async(() -> repository.findAllById(userIds));
+    }
+
+    /**
+     * Users holding all of the given roles and having completed all of the given courses
+     */
+    @GetMapping
+    public CompletableFuture<List<StdUser>> query(@RequestParam(name = "role", required = false) final List<Role> roles,
+                                                  @RequestParam(name = "course", required = false) final List<TrainingCourse> courses) {
+        final Role[] roleArray = roles == null ? new Role[0] : roles.toArray(new Role[0]);
+        final TrainingCourse[] courseArray = courses == null ? new TrainingCourse[0] : courses.toArray(new TrainingCourse[0]);
+        if (roleArray.length == 0 && courseArray.length == 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "at least one role or course is required, use /users/export for all users");
+        }
+        return async(() -> repository.findByRoleAndTrainingCourse(roleArray, courseArray));
+    }
+
+    @GetMapping(path = "/export", produces = NDJSON)
+    public StreamingResponseBody export() {
+        return out -> {
+            try (UserNdjsonWriter writer = UserNdjsonWriter.open(out)) {
+                final Iterator<StdUser> users = repository.stream().iterator();
+                while (users.hasNext()) {
+                    writer.write(users.next());
+                }
+            }
+        };
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public void rejected() {
+        // the async pool and its queue are full, shed the request
+    }
+
+    private <T> CompletableFuture<T> async(final Supplier<T> work) {
+        return CompletableFuture.supplyAsync(work, executor);
+    }
+
+    private static <T> T found(final Optional<StdUser> user, final Function<StdUser, T> view) {
+        return user.map(view).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "user not found"));
+    }
+}
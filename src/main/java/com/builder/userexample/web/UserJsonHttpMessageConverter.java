@@ -0,0 +1,106 @@
+package com.builder.userexample.web;
+
+import com.builder.userexample.domain.User;
+import com.builder.userexample.json.UserJson;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Writes {@link User} and collection of user responses through {@link UserJson}, so the web layer uses the prefetched
+ * writers and reports to the same serialized bytes metric as every other marshalling path. Request bodies and any
+ * other response are left to Spring's Jackson converter.
+ */
+public class UserJsonHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public UserJsonHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(final Class<?> clazz) {
+        return User.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(final Class<?> clazz, final MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(final Type type, final Class<?> contextClass, final MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(final Type type, final Class<?> clazz, final MediaType mediaType) {
+        return canWrite(mediaType) && (type == null ? supports(clazz) : users(ResolvableType.forType(type)));
+    }
+
+    /**
+     * A user type or a collection declared to hold users
+     */
+    private static boolean users(final ResolvableType type) {
+        final Class<?> raw = type.toClass();
+        if (Collection.class.isAssignableFrom(raw)) {
+            final Class<?> element = type.asCollection().resolveGeneric(0);
+            return element != null && User.class.isAssignableFrom(element);
+        }
+        return User.class.isAssignableFrom(raw);
+    }
+
+    @Override
+    protected void writeInternal(final Object value, final Type type, final HttpOutputMessage outputMessage) throws IOException {
+        if (value instanceof User) {
+            UserJson.write((User) value, outputMessage.getBody());
+            return;
+        }
+        final OutputStream out = new Unflushed(outputMessage.getBody()); // the container flushes once the array is complete
+        out.write('[');
+        boolean first = true;
+        for (final Object user : (Collection<?>) value) {
+            if (!first) {
+                out.write(',');
+            }
+            UserJson.write((User) user, out);
+            first = false;
+        }
+        out.write(']');
+    }
+
+    @Override
+    protected Object readInternal(final Class<?> clazz, final HttpInputMessage inputMessage) {
+        throw new UnsupportedOperationException("requests are read by the Jackson converter");
+    }
+
+    @Override
+    public Object read(final Type type, final Class<?> contextClass, final HttpInputMessage inputMessage) {
+        throw new UnsupportedOperationException("requests are read by the Jackson converter");
+    }
+
+    /**
+     * Keeps {@link UserJson#write(User, java.io.OutputStream)} from flushing the response after every element
+     */
+    private static final class Unflushed extends FilterOutputStream {
+        private Unflushed(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+}
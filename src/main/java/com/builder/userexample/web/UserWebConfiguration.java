@@ -0,0 +1,63 @@
+package com.builder.userexample.web;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Wires the executors and the response converter used by {@link UserController}.
+ * <p>
+ * {@code userexample.web.async.threads} and {@code userexample.web.async.queue} bound the pool used for async
+ * requests and streaming exports, requests beyond the queue are rejected with 503 rather than piling up.
+ */
+@Configuration
+public class UserWebConfiguration implements WebMvcConfigurer {
+
+    private final ThreadPoolTaskExecutor asyncExecutor;
+    private final long asyncTimeout;
+
+    public UserWebConfiguration(@Value("${userexample.web.async.threads:0}") final int threads,
+                                @Value("${userexample.web.async.queue:10000}") final int queue,
+                                @Value("${userexample.web.async.timeout-millis:30000}") final long asyncTimeout) {
+        this.asyncExecutor = new ThreadPoolTaskExecutor();
+        this.asyncExecutor.setThreadNamePrefix("user-async-");
+        this.asyncExecutor.setCorePoolSize(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        this.asyncExecutor.setMaxPoolSize(asyncExecutor.getCorePoolSize());
+        this.asyncExecutor.setQueueCapacity(queue);
+        this.asyncExecutor.initialize();
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor userAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    /**
+     * Runs handler work inline in {@link WebMode#SERVLET} mode, on {@code userAsyncExecutor} otherwise
+     */
+    @Bean
+    public Executor userRequestExecutor(@Value("${userexample.web.mode:SERVLET}") final WebMode mode,
+                                        @Qualifier("userAsyncExecutor") final ThreadPoolTaskExecutor userAsyncExecutor) {
+        return mode == WebMode.ASYNC ? userAsyncExecutor : Runnable::run;
+    }
+
+    /**
+     * Picked up by Spring Boot ahead of its Jackson converter
+     */
+    @Bean
+    public UserJsonHttpMessageConverter userJsonHttpMessageConverter() {
+        return new UserJsonHttpMessageConverter();
+    }
+
+    @Override
+    public void configureAsyncSupport(final AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(asyncExecutor).setDefaultTimeout(asyncTimeout);
+    }
+}
@@ -0,0 +1,16 @@
+package com.builder.userexample.web;
+
+/**
+ * How {@link UserController} handles requests, selected with the {@code userexample.web.mode} property.
+ */
+public enum WebMode {
+    /**
+     * Requests are answered on the servlet container thread
+     */
+    SERVLET,
+    /**
+     * Requests are answered on the bounded {@code userAsyncExecutor} pool through servlet async processing, the
+     * container thread is released as soon as the request is dispatched
+     */
+    ASYNC
+}
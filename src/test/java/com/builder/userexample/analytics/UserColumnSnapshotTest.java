@@ -0,0 +1,78 @@
+package com.builder.userexample.analytics;
+
+import com.builder.userexample.client.Role;
+import com.builder.userexample.client.TrainingCourse;
+import com.builder.userexample.domain.StdUser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class UserColumnSnapshotTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static StdUser user(final String userId, final String roles, final String courses) throws JsonProcessingException {
+        return mapper.readValue("{\"user_id\":\"" + userId + "\",\"attributes\":{\"ROLES\":\"" + roles + "\",\"TRAINING_COURSES\":\"" + courses + "\"}}", StdUser.class);
+    }
+
+    private static UserColumnSnapshot population() throws JsonProcessingException {
+        final List<StdUser> users = Arrays.asList(
+                user("user-0", "#3:DEV", "#7:COURSE17:COURSE2"),
+                user("user-1", "#3:DEV5:ADMIN", "#7:COURSE1"),
+                user("üser-2", "#4:USER", ""),
+                user("user-3", "[\\\"ADMIN\\\"]", "[\\\"COURSE1\\\",\\\"COURSE2\\\",\\\"COURSE3\\\"]"));
+        return UserColumnSnapshot.of(users);
+    }
+
+    @Test
+    public void rowAccessTest() throws JsonProcessingException {
+        final UserColumnSnapshot snapshot = population();
+        assertEquals("every user should have a row", 4, snapshot.size());
+        assertEquals("user ids should round trip through the dictionary", "üser-2", snapshot.userId(2));
+        assertEquals("user ids should keep source order", "user-3", snapshot.userId(3));
+        assertEquals("roles should be decoded", Arrays.asList("DEV", "ADMIN"), snapshot.roles(1));
+        assertEquals("courses should be decoded from either codec", Arrays.asList("COURSE1", "COURSE2", "COURSE3"), snapshot.trainingCompleted(3));
+    }
+
+    @Test
+    public void aggregateTest() throws JsonProcessingException {
+        final UserColumnSnapshot snapshot = population();
+        assertEquals("two users hold DEV", 2, snapshot.countByRole(Role.DEV));
+        assertEquals("one user holds DEV and ADMIN", 1, snapshot.countByRole(Role.DEV, Role.ADMIN));
+        assertEquals("two users completed COURSE1 and COURSE2", 2, snapshot.countByTrainingCourse(TrainingCourse.COURSE1, TrainingCourse.COURSE2));
+        assertEquals("one DEV completed COURSE2", 1, snapshot.countByRoleAndTrainingCourse(Role.DEV, TrainingCourse.COURSE2));
+        final Map<Role, Integer> perRole = snapshot.countPerRole();
+        assertEquals("USER count", Integer.valueOf(1), perRole.get(Role.USER));
+        assertEquals("ADMIN count", Integer.valueOf(2), perRole.get(Role.ADMIN));
+        assertEquals("COURSE1 completion", 0.75, snapshot.completionRatios().get(TrainingCourse.COURSE1), 0.0);
+        assertEquals("COURSE3 completion among admins", 0.5, snapshot.completionRatios(Role.ADMIN).get(TrainingCourse.COURSE3), 0.0);
+        assertArrayEquals("ADMIN rows", new int[]{1, 3}, snapshot.rowsByRole(Role.ADMIN));
+        assertArrayEquals("COURSE3 rows", new int[]{3}, snapshot.rowsByTrainingCourse(TrainingCourse.COURSE3));
+    }
+
+    @Test
+    public void emptyFilterTest() throws JsonProcessingException {
+        final UserColumnSnapshot snapshot = population();
+        assertEquals("no roles should match nobody", 0, snapshot.countByRole());
+        assertEquals("no courses should match nobody", 0, snapshot.countByTrainingCourse());
+        assertArrayEquals("no roles should have no rows", new int[0], snapshot.rowsByRole());
+    }
+
+    @Test
+    public void emptyTest() {
+        final UserColumnSnapshot snapshot = UserColumnSnapshot.of(Collections.emptyList());
+        assertEquals("empty snapshot", 0, snapshot.countByRole(Role.DEV));
+        assertEquals("ratios of an empty snapshot", 0.0, snapshot.completionRatios().get(TrainingCourse.COURSE1), 0.0);
+    }
+}
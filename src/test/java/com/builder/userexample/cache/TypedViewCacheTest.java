@@ -0,0 +1,123 @@
+package com.builder.userexample.cache;
+
+import com.builder.userexample.client.UserWithRoles;
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class TypedViewCacheTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static StdUser user(final String userId, final String roles) throws JsonProcessingException {
+        return mapper.readValue("{\"user_id\":\"" + userId + "\",\"attributes\":{\"ROLES\":\"" + roles + "\"}}", StdUser.class);
+    }
+
+    @Test
+    public void hitTest() throws JsonProcessingException {
+        final TypedViewCache<UserWithRoles> cache = TypedViewCache.forUsersWithRoles(100, Duration.ofMinutes(1));
+        final UserWithRoles first = cache.get(user("user-1", "#3:DEV"));
+        final UserWithRoles second = cache.get(user("user-1", "#3:DEV")); // equal attributes, different instance
+
+        assertSame("Decoded view not reused", first, second);
+        assertEquals("Hit not counted", 1, cache.stats().hits);
+        assertEquals("Miss not counted", 1, cache.stats().misses);
+    }
+
+    @Test
+    public void changedAttributesMissTest() throws JsonProcessingException {
+        final TypedViewCache<UserWithRoles> cache = TypedViewCache.forUsersWithRoles(100, Duration.ofMinutes(1));
+        cache.get(user("user-1", "#3:DEV"));
+        final UserWithRoles updated = cache.get(user("user-1", "#5:ADMIN"));
+
+        assertEquals("Stale view returned", "ADMIN", updated.roles.get(0));
+        assertEquals("Changed user should miss", 2, cache.stats().misses);
+    }
+
+    @Test
+    public void ttlTest() throws JsonProcessingException {
+        final AtomicLong now = new AtomicLong();
+        final TypedViewCache<UserWithRoles> cache = TypedViewCache.create(UserWithRoles::create, 100, Duration.ofSeconds(10), now::get);
+        final StdUser user = user("user-1", "#3:DEV");
+        final UserWithRoles first = cache.get(user);
+
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertNotSame("Expired view returned", first, cache.get(user));
+    }
+
+    @Test
+    public void smallMaximumSizeTest() throws JsonProcessingException {
+        for (final int maximumSize : new int[]{1, 3, 17}) {
+            final TypedViewCache<UserWithRoles> cache = TypedViewCache.forUsersWithRoles(maximumSize, Duration.ofMinutes(1));
+            for (int i = 0; i < 100; i++) {
+                final StdUser user = user("user-" + i, "#3:DEV");
+                cache.get(user);
+                cache.get(user);
+            }
+            assertTrue("Cache of " + maximumSize + " holds " + cache.size(), cache.size() <= maximumSize);
+        }
+        final TypedViewCache<UserWithRoles> single = TypedViewCache.forUsersWithRoles(1, Duration.ofMinutes(1));
+        single.get(user("user-1", "#3:DEV"));
+        assertEquals("Single entry not cached", 1, single.size());
+    }
+
+    @Test
+    public void repositoryInvalidationTest() throws JsonProcessingException {
+        final TypedViewCache<UserWithRoles> cache = TypedViewCache.forUsersWithRoles(100, Duration.ofMinutes(1));
+        final UserRepository repository = new UserRepository();
+        repository.addListener(cache::invalidate);
+
+        final StdUser user = user("user-1", "#3:DEV");
+        repository.save(user);
+        cache.get(user);
+        repository.save(user);
+
+        assertEquals("Update did not invalidate", 0, cache.size());
+    }
+
+    /**
+     * A scan of cold users must not displace users requested repeatedly.
+     */
+    @Test
+    public void admissionTest() throws JsonProcessingException {
+        final AtomicInteger decodes = new AtomicInteger();
+        final TypedViewCache<UserWithRoles> cache = TypedViewCache.create(user -> {
+            decodes.incrementAndGet();
+            return UserWithRoles.create(user);
+        }, 16 * 4, Duration.ofMinutes(1));
+
+        final StdUser[] hot = new StdUser[32];
+        for (int i = 0; i < hot.length; i++) {
+            hot[i] = user("hot-" + i, "#3:DEV");
+        }
+        for (int round = 0; round < 5; round++) {
+            for (final StdUser user : hot) {
+                cache.get(user);
+            }
+        }
+        for (int i = 0; i < 1000; i++) {
+            cache.get(user("cold-" + i, "#3:DEV"));
+        }
+
+        final long before = cache.stats().hits;
+        for (final StdUser user : hot) {
+            cache.get(user);
+        }
+        assertTrue("Hot users were flushed by the scan", cache.stats().hits - before >= hot.length / 2);
+        assertTrue("Cache grew beyond its bound: " + cache.size(), cache.size() <= 16 * 4);
+    }
+}
@@ -0,0 +1,102 @@
+package com.builder.userexample.change;
+
+import com.builder.userexample.client.Role;
+import com.builder.userexample.client.UserWithRoles;
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.json.UserJson;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class UserDiffTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final UserDiff diff = UserDiff.standard();
+
+    private static StdUser user(final String attributes) throws JsonProcessingException {
+        return mapper.readValue("{\"user_id\":\"test-user\",\"attributes\":{" + attributes + "}}", StdUser.class);
+    }
+
+    private static void assertRebuilds(final StdUser before, final StdUser after, final UserChange change) throws JsonProcessingException {
+        assertEquals("Change did not rebuild the user", mapper.writeValueAsString(after), mapper.writeValueAsString(diff.apply(before, change)));
+    }
+
+    @Test
+    public void elementTest() throws JsonProcessingException {
+        final StdUser before = user("\"ROLES\":\"[\\\"USER\\\",\\\"DEV\\\"]\",\"TEAM\":\"core\"");
+        final StdUser after = user("\"ROLES\":\"[\\\"DEV\\\",\\\"ADMIN\\\"]\",\"TEAM\":\"core\"");
+
+        final UserChange change = diff.diff(before, after);
+        assertEquals("Roles should change by element", Arrays.asList(
+                UserChange.Entry.add("ROLES", Collections.singletonList("ADMIN")),
+                UserChange.Entry.delete("ROLES", Collections.singletonList("USER"))), change.entries);
+        assertRebuilds(before, after, change);
+    }
+
+    @Test
+    public void attributeTest() throws JsonProcessingException {
+        final StdUser before = user("\"TEAM\":\"core\",\"SITE\":\"ams\"");
+        final StdUser after = user("\"TEAM\":\"platform\",\"DESK\":\"4\"");
+
+        final UserChange change = diff.diff(before, after);
+        assertEquals("Attributes should change by value", Arrays.asList(
+                UserChange.Entry.remove("SITE"), UserChange.Entry.set("DESK", "4"), UserChange.Entry.set("TEAM", "platform")), change.entries);
+        assertRebuilds(before, after, change);
+        assertTrue("Equal users should not change", diff.diff(after, user("\"DESK\":\"4\",\"TEAM\":\"platform\"")).isEmpty());
+    }
+
+    @Test
+    public void nonCanonicalTest() throws JsonProcessingException {
+        final StdUser before = user("\"ROLES\":\"[\\\"DEV\\\"]\"");
+        final StdUser after = user("\"ROLES\":\"#3:DEV5:ADMIN\"");
+
+        final UserChange change = diff.diff(before, after);
+        assertEquals("Values in another codec should be set whole", Collections.singletonList(UserChange.Entry.set("ROLES", "#3:DEV5:ADMIN")), change.entries);
+        assertRebuilds(before, after, change);
+    }
+
+    @Test
+    public void streamTest() throws IOException {
+        final UserWithRoles v1 = UserWithRoles.create("test-user").withRoles("USER")
+                .withAttribute("TEAM", "core").withAttribute("SITE", "amsterdam").withAttribute("MANAGER", "another-user");
+        final UserWithRoles v2 = v1.withAddedRole(Role.DEV).withAttribute("TEAM", "platform");
+        final UserWithRoles v3 = v2.withoutRole(Role.USER);
+
+        final byte[] shipped = UserJson.mapper().writeValueAsBytes(Arrays.asList(
+                diff.diff(null, stdUser(v1)), diff.diff(stdUser(v1), stdUser(v2)), diff.diff(stdUser(v2), stdUser(v3))));
+        final UserChange[] received = UserJson.mapper().readValue(shipped, UserChange[].class);
+
+        final StdUser rebuilt = diff.applyAll(null, Arrays.asList(received));
+        assertEquals("Change stream did not rebuild the user", UserJson.toJson(stdUser(v3)), UserJson.toJson(rebuilt));
+        assertTrue("Deltas should be smaller than the user", UserJson.mapper().writeValueAsBytes(received[2]).length < UserJson.toBytes(stdUser(v3)).length);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void wrongBaseTest() throws JsonProcessingException {
+        final UserChange change = diff.diff(user("\"TEAM\":\"core\""), user("\"TEAM\":\"platform\""));
+        diff.apply(user("\"TEAM\":\"other\""), change);
+    }
+
+    private static StdUser stdUser(final UserWithRoles user) throws JsonProcessingException {
+        return mapper.readValue(mapper.writeValueAsString(user), UserWithRolesEnvelope.class).userWithRoles;
+    }
+
+    /**
+     * Reads the {@link StdUser} out of the {@code {"userWithRoles":{...}}} envelope
+     */
+    private static final class UserWithRolesEnvelope {
+        @JsonProperty("userWithRoles")
+        public StdUser userWithRoles;
+    }
+}
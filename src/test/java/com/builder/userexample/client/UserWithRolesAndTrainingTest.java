@@ -0,0 +1,82 @@
+package com.builder.userexample.client;
+
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.domain.VocabularySet;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class UserWithRolesAndTrainingTest {
+
+    @Test
+    public void populationTest() throws JsonProcessingException {
+        final UserWithRolesAndTraining user = UserWithRolesAndTraining.create("test-user").withRoles("DEV").withTrainingCourses("COURSE2");
+
+        assertTrue("Role not set", user.hasRole(Role.DEV));
+        assertTrue("Course not set", user.hasCompleted(TrainingCourse.COURSE2));
+        assertEquals("Roles view of the same user", Arrays.asList("DEV"), user.asUserWithRoles().roles);
+        assertEquals("Training view of the same user", Arrays.asList("COURSE2"), user.asUserWithTrainingCompleted().getTrainingCompleted());
+    }
+
+    @Test
+    public void marshallTest() throws JsonProcessingException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final UserWithRolesAndTraining user = UserWithRolesAndTraining.create("test-user").withRoles("ADMIN").withTrainingCourses("COURSE1", "COURSE3");
+
+        final String json = mapper.writeValueAsString(user);
+        assertEquals("Round trip failed", user, mapper.readValue(json, UserWithRolesAndTraining.class));
+
+        final String stdJson = json.substring(json.indexOf(':') + 1, json.length() - 1);
+        final StdUser stdUser = mapper.readValue(stdJson, StdUser.class);
+        assertEquals("Conversion failed", user, UserWithRolesAndTraining.create(stdUser));
+        assertTrue("Roles view of a composed user", UserWithRoles.create(stdUser).hasRole(Role.ADMIN));
+    }
+
+    @Test
+    public void copyOnWriteTest() throws JsonProcessingException {
+        final UserWithRolesAndTraining user = UserWithRolesAndTraining.create("test-user").withRoles("DEV").withTrainingCourses("COURSE1");
+        final UserWithRolesAndTraining updated = user.withRoleSet(VocabularySet.of(Role.class, Role.USER));
+
+        assertTrue("Role not replaced", updated.hasRole(Role.USER) && !updated.hasRole(Role.DEV));
+        assertTrue("Courses lost", updated.hasCompleted(TrainingCourse.COURSE1));
+        assertFalse("Original changed", user.hasRole(Role.USER));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void invalidCourseTest() throws JsonProcessingException {
+        UserWithRolesAndTraining.create("invalid-user").withRoles("DEV").withTrainingCourses("COURSE9");
+    }
+
+    /**
+     * Equality, hashing and updates of any attribute come from the declared attribute types.
+     */
+    @Test
+    public void declaredAttributesTest() throws JsonProcessingException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final UserWithRolesAndTraining user = UserWithRolesAndTraining.create("test-user").withRoles("DEV").withTrainingCourses("COURSE1");
+        final UserWithRolesAndTraining compact = UserWithRolesAndTraining.create(mapper.readValue(
+                "{\"user_id\":\"test-user\",\"attributes\":{\"ROLES\":\"#3:DEV\",\"TRAINING_COURSES\":\"#7:COURSE1\",\"TEAM\":\"core\"}}",
+                StdUser.class));
+
+        assertEquals("Encodings of the same attributes not equal", user, compact);
+        assertEquals("Hash not consistent with equals", user.hashCode(), compact.hashCode());
+        assertFalse("Different courses equal", user.equals(user.withTrainingCompletedSet(VocabularySet.of(TrainingCourse.class))));
+        assertFalse("Other view class equal", user.equals(user.asUserWithRoles()));
+        assertEquals("toString lists the declared attributes",
+                "UserWithRolesAndTraining[userId='test-user', roles=[DEV], trainingCompleted=[COURSE1]]", compact.toString());
+
+        final UserWithRolesAndTraining moved = compact.withAttribute("TEAM", "platform");
+        assertEquals("Declared attributes lost on attribute update", user, moved);
+        assertTrue("Attribute not replaced", mapper.writeValueAsString(moved).contains("\"TEAM\":\"platform\""));
+        assertTrue("Roles not re-read after replacing them", moved.withAttribute("ROLES", "[\"USER\"]").hasRole(Role.USER));
+    }
+}
@@ -1,13 +1,23 @@
 package com.builder.userexample.client;
 
+import com.builder.userexample.domain.AttributeCodecs;
 import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.domain.TypedView;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashSet;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(JUnit4.class)
 public class UserWithRolesTest {
@@ -38,6 +48,34 @@ public class UserWithRolesTest {
         assertEquals("Role not populated", "DEV", user.roles.stream().findFirst().orElseGet(() -> "NOT-FOUND"));
     }
 
+    @Test
+    public void hasRoleTest() throws JsonProcessingException {
+        final UserWithRoles user = UserWithRoles.create("test-user").withRoles("ADMIN", "DEV");
+
+        assertTrue("ADMIN role not found", user.hasRole(Role.ADMIN));
+        assertTrue("DEV role not found by name", user.hasRole("DEV"));
+        assertFalse("USER role should not be held", user.hasRole(Role.USER));
+        assertTrue("containsAll failed", user.hasRoles(Role.ADMIN, Role.DEV));
+        assertFalse("containsAll failed", user.hasRoles(Role.ADMIN, Role.USER));
+        assertEquals("Roles should be listed in Role order", Arrays.asList("DEV", "ADMIN"), user.roles);
+    }
+
+    /**
+     * Roles of a converted {@link StdUser} are only decoded once read.
+     */
+    @Test
+    public void lazyConversionTest() throws JsonProcessingException, NoSuchFieldException, IllegalAccessException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final UserWithRoles user = mapper.readValue("{\"userWithRoles\":{\"user_id\":\"test-user\",\"attributes\":{\"ROLES\":\"[\\\"DEV\\\"]\"}}}", UserWithRoles.class);
+
+        final Field field = TypedView.class.getDeclaredField("decoded");
+        field.setAccessible(true);
+        assertNull("Roles decoded before they were read", field.get(user));
+
+        assertEquals("Role not decoded", "DEV", user.roles.get(0));
+        assertEquals("Decoded roles not retained", Arrays.asList("DEV"), ((Object[]) field.get(user))[0]);
+    }
+
     @Test(expected = RuntimeException.class)
     public void invalidRoleTest() throws JsonProcessingException {
         final UserWithRoles user = UserWithRoles.create("invalid-user").withRoles("LOUNGE-LIZARD");
@@ -63,4 +101,103 @@ public class UserWithRolesTest {
         assertEquals("Staged conversion failed", "ADMIN", outputUser.roles.stream().findFirst().orElseGet(() -> "NOT-FOUND"));
     }
 
+    @Test
+    public void compactCodecTest() throws JsonProcessingException {
+        StdUser.attributeCodec(AttributeCodecs.COMPACT);
+        try {
+            final UserWithRoles user = UserWithRoles.create("compact-user").withRoles("DEV", "ADMIN");
+
+            final ObjectMapper mapper = new ObjectMapper();
+            final String json = mapper.writeValueAsString(user);
+            assertEquals("Compact representation not as expected", "{\"userWithRoles\":{\"user_id\":\"compact-user\",\"attributes\":{\"ROLES\":\"#3:DEV5:ADMIN\"}}}", json);
+            assertEquals("Compact roles not decoded", Arrays.asList("DEV", "ADMIN"), mapper.readValue(json, UserWithRoles.class).roles);
+        } finally {
+            StdUser.attributeCodec(AttributeCodecs.LEGACY_JSON);
+        }
+    }
+
+
+    /**
+     * Updates keep unrelated attributes and leave the original untouched.
+     */
+    @Test
+    public void copyOnWriteTest() throws JsonProcessingException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final UserWithRoles user = UserWithRoles.create(mapper.readValue(
+                "{\"user_id\":\"test-user\",\"attributes\":{\"ROLES\":\"[\\\"DEV\\\"]\",\"TEAM\":\"core\"}}", StdUser.class));
+
+        final UserWithRoles promoted = user.withAddedRole(Role.ADMIN);
+        assertEquals("Role not added", Arrays.asList("DEV", "ADMIN"), promoted.roles);
+        assertEquals("Original changed", Arrays.asList("DEV"), user.roles);
+        assertTrue("Unrelated attribute lost", mapper.writeValueAsString(promoted).contains("\"TEAM\":\"core\""));
+        assertSame("Held role copied", promoted, promoted.withAddedRole(Role.DEV));
+
+        final UserWithRoles demoted = promoted.withoutRole(Role.DEV);
+        assertEquals("Role not removed", Arrays.asList("ADMIN"), demoted.roles);
+        assertEquals("Round trip lost the update", demoted.roles, mapper.readValue(mapper.writeValueAsString(demoted), UserWithRoles.class).roles);
+
+        final UserWithRoles moved = demoted.withAttribute("TEAM", "platform");
+        assertTrue("Attribute not replaced", mapper.writeValueAsString(moved).contains("\"TEAM\":\"platform\""));
+        assertEquals("Roles lost on attribute update", Arrays.asList("ADMIN"), moved.roles);
+        assertFalse("Attribute not removed", mapper.writeValueAsString(moved.withoutAttribute("TEAM")).contains("TEAM"));
+        assertTrue("Roles not re-read after replacing them", moved.withAttribute("ROLES", "[\"USER\"]").hasRole(Role.USER));
+    }
+
+    /**
+     * Role names the {@link Role} enum does not know survive updates, kept names keep their stored order.
+     */
+    @Test
+    public void unknownRoleTest() throws JsonProcessingException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final UserWithRoles user = mapper.readValue(
+                "{\"userWithRoles\":{\"user_id\":\"test-user\",\"attributes\":{\"ROLES\":\"[\\\"SUPPORT\\\",\\\"ADMIN\\\",\\\"USER\\\",\\\"ADMIN\\\"]\"}}}",
+                UserWithRoles.class);
+
+        final UserWithRoles promoted = user.withAddedRole(Role.DEV);
+        assertEquals("Known roles not read", Arrays.asList("USER", "DEV", "ADMIN"), promoted.roles);
+        final String json = mapper.writeValueAsString(promoted);
+        assertTrue("Unknown role dropped or stored order lost: " + json,
+                json.contains("[\\\"SUPPORT\\\",\\\"DEV\\\",\\\"ADMIN\\\",\\\"USER\\\",\\\"ADMIN\\\"]"));
+        assertEquals("Round trip lost the added role", promoted.roles, mapper.readValue(json, UserWithRoles.class).roles);
+
+        final String demoted = mapper.writeValueAsString(promoted.withoutRole(Role.ADMIN).withoutRole(Role.DEV));
+        assertTrue("Unknown role dropped on removal: " + demoted, demoted.contains("[\\\"SUPPORT\\\",\\\"USER\\\"]"));
+    }
+
+    /**
+     * Equality compares roles whatever their encoding and leaves them undecoded when the encodings match.
+     */
+    @Test
+    public void equalsTest() throws JsonProcessingException, NoSuchFieldException, IllegalAccessException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final String json = "{\"user_id\":\"test-user\",\"attributes\":{\"ROLES\":\"[\\\"DEV\\\"]\"}}";
+        final UserWithRoles left = UserWithRoles.create(mapper.readValue(json, StdUser.class));
+        final UserWithRoles right = UserWithRoles.create(mapper.readValue(json, StdUser.class));
+
+        assertEquals("Same roles not equal", left, right);
+        final Field field = TypedView.class.getDeclaredField("decoded");
+        field.setAccessible(true);
+        assertNull("Identical encodings decoded", field.get(left));
+
+        final UserWithRoles compact = UserWithRoles.create(mapper.readValue(json.replace("[\\\"DEV\\\"]", "#3:DEV"), StdUser.class));
+        assertEquals("Encodings of the same roles not equal", left, compact);
+        assertEquals("Hash not consistent with equals", left.hashCode(), compact.hashCode());
+        assertEquals("Hash not stable", left.hashCode(), left.hashCode());
+        assertFalse("View equal to its StdUser", left.equals(left.stdUser()));
+        assertFalse("Different roles equal", left.equals(left.withAddedRole(Role.ADMIN)));
+        assertFalse("Null equal", left.equals(null));
+    }
+
+    @Test
+    public void stdUserEqualsTest() throws JsonProcessingException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final StdUser user = mapper.readValue("{\"user_id\":\"test-user\",\"attributes\":{\"A\":\"a\",\"B\":\"b\"}}", StdUser.class);
+        final StdUser same = mapper.readValue("{\"user_id\":\"test-user\",\"attributes\":{\"B\":\"b\",\"A\":\"a\"}}", StdUser.class);
+        final StdUser other = mapper.readValue("{\"user_id\":\"other-user\",\"attributes\":{\"A\":\"a\",\"B\":\"b\"}}", StdUser.class);
+
+        assertEquals("Same contents not equal", user, same);
+        assertEquals("Hash not consistent with equals", user.hashCode(), same.hashCode());
+        assertFalse("Different userId equal", user.equals(other));
+        assertEquals("Set deduplication failed", 1, new HashSet<>(Arrays.asList(user, same)).size());
+    }
 }
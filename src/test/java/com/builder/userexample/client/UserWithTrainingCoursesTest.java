@@ -1,6 +1,7 @@
 package com.builder.userexample.client;
 
 import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.domain.TypedView;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Test;
@@ -8,12 +9,15 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 @RunWith(JUnit4.class)
@@ -45,6 +49,16 @@ public class UserWithTrainingCoursesTest {
         assertEquals("Role not populated", "COURSE1", user.getTrainingCompleted().stream().findFirst().orElseGet(() -> "NOT-FOUND"));
     }
 
+    @Test
+    public void hasCompletedTest() throws JsonProcessingException {
+        final UserWithTrainingCompleted user = UserWithTrainingCompleted.create("test-user").withTrainingCourses("COURSE3", "COURSE1");
+
+        assertTrue("COURSE1 not found", user.hasCompleted(TrainingCourse.COURSE1));
+        assertTrue("COURSE3 not found by name", user.hasCompleted("COURSE3"));
+        assertFalse("COURSE2 should not be completed", user.hasCompleted(TrainingCourse.COURSE2));
+        assertTrue("containsAll failed", user.hasCompletedAll(TrainingCourse.COURSE1, TrainingCourse.COURSE3));
+    }
+
     @Test(expected = RuntimeException.class)
     public void invalidTrainingCourseTest() throws JsonProcessingException {
         final UserWithTrainingCompleted user = UserWithTrainingCompleted.create("invalid-user").withTrainingCourses("LOUNGE-LIZARD");
@@ -71,23 +85,27 @@ public class UserWithTrainingCoursesTest {
     }
 
     /**
-     * Test that the lazy marshalling is actually happening.
+     * Test that the lazy marshalling is actually happening. The decoded courses live in the {@link TypedView} slot
+     * shared by all views rather than in a field of this class, and a user built by the factory starts out decoded, so
+     * the check reads a user converted from JSON.
      */
     @Test
     public void lazyGetterTest() throws JsonProcessingException, NoSuchFieldException, IllegalAccessException {
-        final UserWithTrainingCompleted user = UserWithTrainingCompleted.create("test-user").withTrainingCourses("COURSE1");
+        final ObjectMapper mapper = new ObjectMapper();
+        final UserWithTrainingCompleted user = mapper.readValue(mapper.writeValueAsString(
+                UserWithTrainingCompleted.create("test-user").withTrainingCourses("COURSE1")), UserWithTrainingCompleted.class);
         final List<String> expectedTrainingCompleted = Collections.singletonList("COURSE1");
 
-        // validate that the trainingCompleted field has not been set for the user
-        final Field field = UserWithTrainingCompleted.class.getDeclaredField("trainingCompleted");
+        // validate that the training courses have not been decoded for the user
+        final Field field = TypedView.class.getDeclaredField("decoded");
         field.setAccessible(true);
-        assertNull("The trainingCompleted field has been populated, but it should have been null", field.get(user));
+        assertNull("The training courses have been decoded, but they should have been null", field.get(user));
 
-        // call the user's getter method which should then populate the trainingCompleted field after pulling the data out of the attribute map
+        // call the user's getter method which should then decode the courses out of the attribute map
         assertEquals("Failed to get the training completed field", expectedTrainingCompleted, user.getTrainingCompleted());
 
-        // check that the user now has the trainingCompleted field populated
-        assertEquals("Failed to get the training completed field", expectedTrainingCompleted, field.get(user));
+        // check that the user now holds the decoded courses
+        assertEquals("Failed to get the training completed field", expectedTrainingCompleted, ((Object[]) field.get(user))[0]);
     }
 
     @Test
@@ -124,4 +142,27 @@ public class UserWithTrainingCoursesTest {
 
         assertFalse("Equals behaviour no longer works when tested against different objects with different contents", user1.equals(user2));
     }
+
+    @Test
+    public void copyOnWriteTest() throws JsonProcessingException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final UserWithTrainingCompleted user = UserWithTrainingCompleted.create("test-user").withTrainingCourses("COURSE2")
+                .withAttribute("TEAM", "core");
+
+        final UserWithTrainingCompleted updated = user.withAddedCourse(TrainingCourse.COURSE1).withoutCourse(TrainingCourse.COURSE2);
+        assertEquals("Courses not updated", Arrays.asList("COURSE1"), updated.getTrainingCompleted());
+        assertEquals("Original changed", Arrays.asList("COURSE2"), user.getTrainingCompleted());
+        assertTrue("Unrelated attribute lost", mapper.writeValueAsString(updated).contains("\"TEAM\":\"core\""));
+        assertSame("Missing course copied", updated, updated.withoutCourse(TrainingCourse.COURSE3));
+        assertFalse("Attribute not removed", mapper.writeValueAsString(updated.withoutAttribute("TEAM")).contains("TEAM"));
+    }
+
+    @Test
+    public void hashCodeTest() throws JsonProcessingException {
+        final UserWithTrainingCompleted user1 = UserWithTrainingCompleted.create("test-user").withTrainingCourses("COURSE1", "COURSE2");
+        final UserWithTrainingCompleted user2 = UserWithTrainingCompleted.create("test-user").withTrainingCourses("COURSE2", "COURSE1");
+
+        assertEquals("Equal users should have equal hashes", user1.hashCode(), user2.hashCode());
+        assertEquals("Set deduplication failed", 1, new HashSet<>(Arrays.asList(user1, user2)).size());
+    }
 }
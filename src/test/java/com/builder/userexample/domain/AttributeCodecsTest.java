@@ -0,0 +1,71 @@
+package com.builder.userexample.domain;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class AttributeCodecsTest {
+
+    private static final List<String> values = Arrays.asList("DEV", "ADMIN");
+
+    @Test
+    public void legacyJsonEncodingTest() {
+        assertEquals("Legacy form changed", "[\"DEV\",\"ADMIN\"]", AttributeCodecs.LEGACY_JSON.encode(values));
+    }
+
+    @Test
+    public void compactEncodingTest() {
+        assertEquals("Compact form changed", "#3:DEV5:ADMIN", AttributeCodecs.COMPACT.encode(values));
+    }
+
+    @Test
+    public void roundTripTest() {
+        for (final AttributeCodecs codec : AttributeCodecs.values()) {
+            assertEquals("Round trip failed for " + codec, values, codec.decode(codec.encode(values)));
+            assertEquals("Empty round trip failed for " + codec, Collections.emptyList(), codec.decode(codec.encode(Collections.emptyList())));
+        }
+    }
+
+    /**
+     * Both codecs must read values written by the other so the wire format can be switched without a migration.
+     */
+    @Test
+    public void compatibilityTest() {
+        assertEquals("Compact codec cannot read legacy JSON", values, AttributeCodecs.COMPACT.decode("[ \"DEV\" , \"ADMIN\" ]"));
+        assertEquals("Legacy codec cannot read compact form", values, AttributeCodecs.LEGACY_JSON.decode("#3:DEV5:ADMIN"));
+    }
+
+    @Test
+    public void escapedValuesTest() {
+        final List<String> awkward = Arrays.asList("quote\"d", "back\\slash", "colon:5:value", "");
+        for (final AttributeCodecs codec : AttributeCodecs.values()) {
+            assertEquals("Escaping failed for " + codec, awkward, codec.decode(codec.encode(awkward)));
+        }
+    }
+
+    @Test
+    public void invalidInputTest() {
+        assertTrue("null should decode to empty", AttributeCodecs.decodeAny(null).isEmpty());
+        assertTrue("garbage should decode to empty", AttributeCodecs.decodeAny("not-a-list").isEmpty());
+        assertTrue("broken JSON should decode to empty", AttributeCodecs.decodeAny("[\"DEV\"").isEmpty());
+        assertTrue("broken compact form should decode to empty", AttributeCodecs.decodeAny("#9:DEV").isEmpty());
+    }
+
+    /**
+     * The codec property is read while {@link StdUser} is initialised, a bad value falls back instead of throwing.
+     */
+    @Test
+    public void codecNameTest() {
+        assertEquals("Default codec changed", AttributeCodecs.LEGACY_JSON, AttributeCodecs.named(null));
+        assertEquals("Name should ignore case and blanks", AttributeCodecs.COMPACT, AttributeCodecs.named(" compact "));
+        assertEquals("Unknown name should fall back", AttributeCodecs.LEGACY_JSON, AttributeCodecs.named("COMPCAT"));
+    }
+}
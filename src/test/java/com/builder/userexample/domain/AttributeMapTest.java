@@ -0,0 +1,100 @@
+package com.builder.userexample.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class AttributeMapTest {
+
+    private static Map<String, String> source(final int size) {
+        final Map<String, String> map = new LinkedHashMap<>();
+        for (int i = size - 1; i >= 0; i--) {
+            map.put("KEY_" + i, "value-" + i);
+        }
+        return map;
+    }
+
+    @Test
+    public void lookupTest() {
+        for (final int size : new int[]{1, 8, 9, 40}) {
+            final Map<String, String> source = source(size);
+            final AttributeMap map = AttributeMap.copyOf(source);
+
+            assertEquals("Size not kept", size, map.size());
+            source.forEach((key, value) -> assertEquals("Lookup failed for " + key, value, map.get(key)));
+            assertNull("Unknown key found", map.get("MISSING"));
+            assertFalse("Unknown key contained", map.containsKey("MISSING"));
+        }
+    }
+
+    @Test
+    public void mapContractTest() {
+        final Map<String, String> source = source(12);
+        final AttributeMap map = AttributeMap.copyOf(source);
+
+        assertEquals("Not equal to its source", source, map);
+        assertEquals("Source not equal to the copy", map, source);
+        assertEquals("hashCode differs from HashMap", new HashMap<>(source).hashCode(), map.hashCode());
+        assertEquals("Copies not equal", map, AttributeMap.copyOf(new HashMap<>(source)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void immutableTest() {
+        AttributeMap.copyOf(source(2)).put("KEY", "value");
+    }
+
+    @Test
+    public void internedKeyTest() {
+        final String parsedKey = new String("ROLES".toCharArray());
+        final AttributeMap map = AttributeMap.copyOf(new HashMap<>(Map.of(parsedKey, "#3:DEV")));
+
+        assertSame("Well known key not interned", AttributeKeys.ROLES, map.keySet().iterator().next());
+        assertTrue("Constant lookup failed", map.containsKey(AttributeKeys.ROLES));
+    }
+
+    @Test
+    public void stdUserJsonTest() throws JsonProcessingException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final String json = "{\"user_id\":\"test-user\",\"attributes\":{\"ROLES\":\"#3:DEV\",\"A\":\"a\"}}";
+        final StdUser user = mapper.readValue(json, StdUser.class);
+
+        assertEquals("Attributes should serialize in key order", "{\"user_id\":\"test-user\",\"attributes\":{\"A\":\"a\",\"ROLES\":\"#3:DEV\"}}",
+                mapper.writeValueAsString(user));
+        assertEquals("Attribute read failed", "#3:DEV", StdUser.attribute(user, AttributeKeys.ROLES));
+    }
+
+    @Test
+    public void copyOnWriteTest() {
+        final AttributeMap map = AttributeMap.copyOf(source(3));
+
+        final AttributeMap replaced = map.with("KEY_1", "changed");
+        assertEquals("Value not replaced", "changed", replaced.get("KEY_1"));
+        assertEquals("Original changed", "value-1", map.get("KEY_1"));
+        assertTrue("Keys not shared on replace", replaced.sharesKeysWith(map));
+        assertSame("Unchanged value copied", map, map.with("KEY_1", "value-1"));
+
+        final AttributeMap grown = map.with("A", "a");
+        assertEquals("Key not added", 4, grown.size());
+        assertEquals("Added key not in sorted order", "A", grown.keySet().iterator().next());
+        assertEquals("Grown map not equal to a copy", AttributeMap.copyOf(new HashMap<>(grown)), grown);
+
+        final AttributeMap shrunk = grown.without("KEY_0");
+        assertFalse("Key not removed", shrunk.containsKey("KEY_0"));
+        assertEquals("Other keys lost", "value-2", shrunk.get("KEY_2"));
+        assertSame("Missing key copied", shrunk, shrunk.without("MISSING"));
+        assertSame("Last key removal not empty", AttributeMap.EMPTY, AttributeMap.of("A", "a").without("A"));
+    }
+}
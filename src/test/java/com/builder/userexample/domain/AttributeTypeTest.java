@@ -0,0 +1,53 @@
+package com.builder.userexample.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(JUnit4.class)
+public class AttributeTypeTest {
+
+    private enum Colour {RED, GREEN, BLUE}
+
+    private static final AttributeType<Colour> COLOURS = AttributeType.of("COLOURS", Colour.class, "Invalid colour supplied");
+
+    @Test
+    public void writeReadTest() throws JsonProcessingException {
+        final StdUser user = COLOURS.create("test-user", COLOURS.parse("BLUE", "RED"));
+        assertEquals("Values not read back", Arrays.asList("RED", "BLUE"), COLOURS.read(user));
+
+        final ObjectMapper mapper = new ObjectMapper();
+        final StdUser other = mapper.readValue("{\"user_id\":\"test-user\",\"attributes\":{\"TEAM\":\"core\"}}", StdUser.class);
+        final StdUser written = COLOURS.write(other, COLOURS.parse("GREEN"));
+        assertEquals("Other attribute lost", "core", StdUser.attribute(written, "TEAM"));
+        assertEquals("Missing attribute not empty", Collections.emptyList(), COLOURS.read(other));
+    }
+
+    @Test
+    public void memoTest() {
+        final String encoded = AttributeCodecs.LEGACY_JSON.encode(Arrays.asList("RED", "PURPLE"));
+        assertEquals("Unknown names not dropped", Arrays.asList("RED"), COLOURS.decode(encoded));
+        assertSame("Decoded value not memoized", COLOURS.decode(encoded), COLOURS.decode(new String(encoded.toCharArray())));
+    }
+
+    @Test
+    public void codecTest() {
+        final AttributeType<Colour> compact = COLOURS.withCodec(AttributeCodecs.COMPACT);
+        final StdUser user = compact.create("test-user", compact.parse("GREEN"));
+        assertEquals("Declared codec not used", "#5:GREEN", compact.encoded(user));
+        assertEquals("Compact value not readable by the default declaration", Arrays.asList("GREEN"), COLOURS.read(user));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void invalidTest() {
+        COLOURS.parse("PURPLE");
+    }
+}
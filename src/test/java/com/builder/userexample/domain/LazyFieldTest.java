@@ -0,0 +1,82 @@
+package com.builder.userexample.domain;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class LazyFieldTest {
+
+    private static final AtomicInteger decodes = new AtomicInteger();
+
+    private static final class Owner {
+        private static final LazyField<Owner, String> VALUE = LazyField.of(
+                AtomicReferenceFieldUpdater.newUpdater(Owner.class, String.class, "value"), Owner::decode);
+
+        private final String encoded;
+        private volatile String value;
+
+        private Owner(final String encoded) {
+            this.encoded = encoded;
+        }
+
+        private String decode() {
+            decodes.incrementAndGet();
+            try {
+                Thread.sleep(20); // widen the race window
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return encoded.toUpperCase();
+        }
+    }
+
+    @Test
+    public void lazyDecodeTest() {
+        final Owner owner = new Owner("value");
+
+        assertFalse("Decoded before first access", Owner.VALUE.isDecoded(owner));
+        assertEquals("Decoded value not as expected", "VALUE", Owner.VALUE.get(owner));
+        assertTrue("Not marked as decoded", Owner.VALUE.isDecoded(owner));
+    }
+
+    @Test
+    public void singleDecodeUnderContentionTest() throws Exception {
+        final Owner owner = new Owner("shared");
+        final int threads = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        decodes.set(0);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return Owner.VALUE.get(owner);
+                }));
+            }
+            start.countDown();
+            final String first = results.get(0).get();
+            for (final Future<String> result : results) {
+                assertSame("Readers saw different instances", first, result.get());
+            }
+            assertEquals("Decoder ran more than once", 1, decodes.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.builder.userexample.domain;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class VocabularySetTest {
+
+    private enum Colour {RED, GREEN, BLUE}
+
+    @Test
+    public void listViewTest() {
+        final VocabularySet<Colour> set = VocabularySet.parse(Colour.class, Arrays.asList("BLUE", "RED", "BLUE"), "invalid");
+
+        assertEquals("List view not in ordinal order without duplicates", Arrays.asList("RED", "BLUE"), set);
+        assertEquals("Mask not as expected", 0b101L, set.mask());
+        assertEquals("hashCode must match List.hashCode", Arrays.asList("RED", "BLUE").hashCode(), set.hashCode());
+    }
+
+    @Test
+    public void membershipTest() {
+        final VocabularySet<Colour> set = VocabularySet.of(Colour.class, Colour.RED, Colour.GREEN);
+
+        assertTrue("Enum membership failed", set.contains(Colour.GREEN));
+        assertFalse("Enum membership failed", set.contains(Colour.BLUE));
+        assertTrue("Name membership failed", set.contains("RED"));
+        assertFalse("Unknown name should not be contained", set.contains("PURPLE"));
+        assertTrue("containsAll failed", set.containsAll(Colour.RED, Colour.GREEN));
+        assertFalse("containsAll failed", set.containsAll(Colour.RED, Colour.BLUE));
+        assertEquals("EnumSet conversion failed", EnumSet.of(Colour.RED, Colour.GREEN), set.toEnumSet());
+    }
+
+    @Test
+    public void sharedInstanceTest() {
+        assertSame("Small vocabularies should share instances",
+                VocabularySet.of(Colour.class, Colour.GREEN), VocabularySet.parse(Colour.class, Arrays.asList("GREEN"), "invalid"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void invalidNameTest() {
+        VocabularySet.parse(Colour.class, Arrays.asList("PURPLE"), "invalid");
+    }
+
+    @Test
+    public void lenientParseTest() {
+        assertEquals("Unknown names should be dropped", Arrays.asList("GREEN"),
+                VocabularySet.parseKnown(Colour.class, Arrays.asList("PURPLE", "GREEN")));
+    }
+}
@@ -0,0 +1,66 @@
+package com.builder.userexample.json;
+
+import com.builder.userexample.client.UserWithRoles;
+import com.builder.userexample.client.UserWithTrainingCompleted;
+import com.builder.userexample.domain.StdUser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(JUnit4.class)
+public class UserJsonTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final String STD_USER_JSON = "{\"user_id\":\"test-user\",\"attributes\":{\"A\":null,\"ROLES\":\"[\\\"DEV\\\"]\",\"TEAM\":\"core\"}}";
+
+    @Test
+    public void sameOutputTest() throws IOException {
+        final StdUser stdUser = UserJson.read(STD_USER_JSON, StdUser.class);
+        final UserWithRoles user = UserWithRoles.create("test-user").withRoles("ADMIN");
+
+        assertEquals("StdUser output differs from a plain mapper", mapper.writeValueAsString(stdUser), UserJson.toJson(stdUser));
+        assertEquals("StdUser not written as read", STD_USER_JSON, UserJson.toJson(stdUser));
+        assertArrayEquals("View output differs from a plain mapper", mapper.writeValueAsBytes(user), UserJson.toBytes(user));
+    }
+
+    @Test
+    public void streamTest() throws IOException {
+        final UserWithTrainingCompleted user = UserWithTrainingCompleted.create("test-user").withTrainingCourses("COURSE1");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UserJson.write(user, out);
+        UserJson.write(user, out); // the stream is left open
+
+        final String json = mapper.writeValueAsString(user);
+        assertEquals("Both users not written", json + json, out.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    @Test
+    public void byteBufferTest() throws IOException {
+        final UserWithRoles user = UserWithRoles.create("test-user").withRoles("DEV", "USER");
+        for (final ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(256), ByteBuffer.allocateDirect(256)}) {
+            buffer.put((byte) ' ');
+            final int length = UserJson.write(user, buffer);
+            assertEquals("Length not reported", length + 1, buffer.position());
+
+            buffer.flip().position(1);
+            assertEquals("Round trip failed", user.roles, UserJson.read(buffer, UserWithRoles.class).roles);
+            assertEquals("Buffer not consumed", 0, buffer.remaining());
+        }
+    }
+
+    @Test
+    public void cachedTest() {
+        assertSame("Reader not cached", UserJson.reader(StdUser.class), UserJson.reader(StdUser.class));
+        assertSame("Writer not cached", UserJson.writer(UserWithRoles.class), UserJson.writer(UserWithRoles.class));
+    }
+}
@@ -0,0 +1,128 @@
+package com.builder.userexample.metrics;
+
+import com.builder.userexample.client.UserWithRoles;
+import com.builder.userexample.client.UserWithTrainingCompleted;
+import com.builder.userexample.json.UserJson;
+import com.builder.userexample.stream.UserNdjsonWriter;
+import com.builder.userexample.web.UserJsonHttpMessageConverter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class UserMetricsTest {
+
+    private InMemoryRecorder recorder;
+
+    @Before
+    public void setUp() {
+        recorder = new InMemoryRecorder();
+        UserMetrics.recorder(recorder);
+    }
+
+    @After
+    public void tearDown() {
+        UserMetrics.recorder(null);
+    }
+
+    @Test
+    public void factoryAndDecodeTimersTest() throws JsonProcessingException {
+        final UserWithTrainingCompleted user = UserWithTrainingCompleted.create("metric-user").withTrainingCourses("COURSE1");
+        UserWithRoles.create("metric-user").withRoles("DEV").roles.size();
+
+        assertEquals("Create not timed", 1, recorder.histogram(UserMetrics.CREATE, "UserWithTrainingCompleted").count());
+        assertEquals("Create not timed", 1, recorder.histogram(UserMetrics.CREATE, "UserWithRoles").count());
+        user.getTrainingCompleted();
+        assertEquals("Created user decoded", 0, recorder.histogram(UserMetrics.DECODE, "UserWithTrainingCompleted").count());
+
+        final UserWithTrainingCompleted converted = new ObjectMapper().readValue(
+                new ObjectMapper().writeValueAsString(user), UserWithTrainingCompleted.class);
+        assertEquals("Lazy decode timed too early", 0, recorder.histogram(UserMetrics.DECODE, "UserWithTrainingCompleted").count());
+        converted.getTrainingCompleted();
+        assertEquals("Decode not timed", 1, recorder.histogram(UserMetrics.DECODE, "UserWithTrainingCompleted").count());
+    }
+
+    @Test
+    public void validationFailureTest() throws JsonProcessingException {
+        try {
+            UserWithRoles.create("metric-user").withRoles("LOUNGE-LIZARD");
+            fail("Invalid role accepted");
+        } catch (RuntimeException e) {
+            assertEquals("Rejection not counted", 1, recorder.counter(UserMetrics.VALIDATION_FAILURE, "UserWithRoles"));
+        }
+    }
+
+    @Test
+    public void serializedBytesTest() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (UserNdjsonWriter writer = UserNdjsonWriter.open(out)) {
+            writer.write(UserWithRoles.create("metric-user").withRoles("DEV"));
+        }
+        assertEquals("Bytes not recorded", out.size(), recorder.histogram(UserMetrics.SERIALIZED_BYTES, "UserWithRoles").sum());
+    }
+
+    /**
+     * {@link UserJson} and the web converter report to the same distribution as the NDJSON writer.
+     */
+    @Test
+    public void serializedBytesPathsTest() throws IOException {
+        final UserWithRoles user = UserWithRoles.create("metric-user").withRoles("DEV");
+        final int size = UserJson.toBytes(user).length;
+        UserJson.write(user, new ByteArrayOutputStream());
+        final String json = UserJson.toJson(user);
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        new UserJsonHttpMessageConverter().write(Arrays.asList(user, user), null, MediaType.APPLICATION_JSON, new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return body;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return new HttpHeaders();
+            }
+        });
+        assertEquals("Response not written as a JSON array", "[" + json + "," + json + "]",
+                body.toString("UTF-8"));
+        assertEquals("Not every path recorded", 5, recorder.histogram(UserMetrics.SERIALIZED_BYTES, "UserWithRoles").count());
+        assertEquals("Bytes not recorded", 5L * size, recorder.histogram(UserMetrics.SERIALIZED_BYTES, "UserWithRoles").sum());
+    }
+
+    @Test
+    public void disabledTest() {
+        UserMetrics.recorder(null);
+        assertFalse("Should be disabled", UserMetrics.enabled());
+        assertEquals("Clock read while disabled", 0L, UserMetrics.start());
+    }
+
+    @Test
+    public void histogramPercentileTest() {
+        final Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        final long p50 = histogram.percentile(50);
+        final long p99 = histogram.percentile(99);
+        assertTrue("p50 out of tolerance: " + p50, Math.abs(p50 - 500_000) <= 500_000 / 16);
+        assertTrue("p99 out of tolerance: " + p99, Math.abs(p99 - 990_000) <= 990_000 / 16);
+        assertEquals("max not tracked", 1_000_000, histogram.max());
+    }
+}
@@ -0,0 +1,120 @@
+package com.builder.userexample.repository;
+
+import com.builder.userexample.client.Role;
+import com.builder.userexample.client.TrainingCourse;
+import com.builder.userexample.domain.StdUser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class UserRepositoryTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static StdUser user(final String userId, final String roles, final String courses) throws JsonProcessingException {
+        return mapper.readValue("{\"user_id\":\"" + userId + "\",\"attributes\":{\"ROLES\":\"" + roles + "\",\"TRAINING_COURSES\":\"" + courses + "\"}}", StdUser.class);
+    }
+
+    private static List<String> ids(final List<StdUser> users) {
+        return users.stream().map(user -> user.userId).sorted().collect(toList());
+    }
+
+    @Test
+    public void saveAndFindTest() throws JsonProcessingException {
+        final UserRepository repository = new UserRepository();
+        final StdUser user = user("user-1", "#3:DEV", "#7:COURSE1");
+
+        assertFalse("Nothing should have been replaced", repository.save(user).isPresent());
+        assertEquals("User not found", user, repository.findById("user-1").orElse(null));
+        assertEquals("Bulk lookup failed", Arrays.asList(user), repository.findAllById(Arrays.asList("missing", "user-1")));
+    }
+
+    @Test
+    public void indexQueryTest() throws JsonProcessingException {
+        final UserRepository repository = new UserRepository();
+        repository.save(user("admin-dev", "#3:DEV5:ADMIN", "#7:COURSE2"));
+        repository.save(user("admin", "#5:ADMIN", "#7:COURSE1"));
+        repository.save(user("dev", "#3:DEV", "#7:COURSE27:COURSE3"));
+
+        assertEquals("Role index query failed", Arrays.asList("admin", "admin-dev"), ids(repository.findByRole(Role.ADMIN)));
+        assertEquals("Role intersection failed", Arrays.asList("admin-dev"), ids(repository.findByRole(Role.ADMIN, Role.DEV)));
+        assertEquals("Course index query failed", Arrays.asList("admin-dev", "dev"), ids(repository.findByTrainingCourse(TrainingCourse.COURSE2)));
+        assertTrue("No roles should match nobody", repository.findByRole().isEmpty());
+        assertEquals("Count failed", 2, repository.countByRole(Role.DEV));
+        assertEquals("Index intersection failed", Arrays.asList("admin-dev"),
+                ids(repository.findByRoleAndTrainingCourse(new Role[]{Role.ADMIN}, new TrainingCourse[]{TrainingCourse.COURSE2})));
+        assertEquals("Course only intersection failed", Arrays.asList("admin-dev", "dev"),
+                ids(repository.findByRoleAndTrainingCourse(new Role[0], new TrainingCourse[]{TrainingCourse.COURSE2})));
+    }
+
+    @Test
+    public void updateAndDeleteMaintainIndexesTest() throws JsonProcessingException {
+        final UserRepository repository = new UserRepository();
+        repository.save(user("user-1", "#5:ADMIN", "#7:COURSE1"));
+        repository.save(user("user-1", "#4:USER", "#7:COURSE1"));
+
+        assertTrue("Stale role index entry", repository.findByRole(Role.ADMIN).isEmpty());
+        assertEquals("Role index not updated", Arrays.asList("user-1"), ids(repository.findByRole(Role.USER)));
+
+        repository.delete("user-1");
+        assertTrue("Deleted user still indexed", repository.findByTrainingCourse(TrainingCourse.COURSE1).isEmpty());
+        assertEquals("Deleted user still stored", 0, repository.size());
+    }
+
+    /**
+     * Deleted users free their ordinal, churn does not widen the indexes and a reused ordinal only matches its new user.
+     */
+    @Test
+    public void ordinalReuseTest() throws JsonProcessingException {
+        final UserRepository repository = new UserRepository();
+        repository.save(user("kept", "#4:USER", "#7:COURSE1"));
+        for (int i = 0; i < 1000; i++) {
+            repository.save(user("churn-" + i, "#5:ADMIN", "#7:COURSE2"));
+            repository.delete("churn-" + i);
+        }
+        assertEquals("Ordinals of deleted users not reused", 2, repository.ordinalCount());
+
+        repository.save(user("admin", "#5:ADMIN", "#7:COURSE2"));
+        repository.save(user("dev", "#3:DEV", "#7:COURSE3"));
+        assertEquals("Ordinals of deleted users not reused", 3, repository.ordinalCount());
+        assertEquals("Reused ordinal lost its role", Arrays.asList("admin"), ids(repository.findByRole(Role.ADMIN)));
+        assertEquals("Reused ordinal kept a stale course", Arrays.asList("dev"), ids(repository.findByTrainingCourse(TrainingCourse.COURSE3)));
+        assertEquals("Stored user lost", Arrays.asList("kept"), ids(repository.findByRole(Role.USER)));
+    }
+
+    @Test
+    public void concurrentSaveTest() throws InterruptedException {
+        final UserRepository repository = new UserRepository();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 5000; i++) {
+            final int n = i;
+            executor.execute(() -> {
+                try {
+                    repository.save(user("user-" + n, n % 2 == 0 ? "#5:ADMIN" : "#4:USER", "#7:COURSE1"));
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue("Saves did not finish", executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals("Users lost", 5000, repository.size());
+        assertEquals("Role index lost entries", 2500, repository.findByRole(Role.ADMIN).size());
+        assertEquals("Course index lost entries", 5000, repository.countByTrainingCourse(TrainingCourse.COURSE1));
+    }
+}
@@ -0,0 +1,192 @@
+package com.builder.userexample.store;
+
+import com.builder.userexample.client.Role;
+import com.builder.userexample.client.TrainingCourse;
+import com.builder.userexample.domain.StdUser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class MappedUserStoreTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static StdUser user(final String userId, final String roles, final String courses) throws JsonProcessingException {
+        return mapper.readValue("{\"user_id\":\"" + userId + "\",\"attributes\":{\"ROLES\":\"" + roles + "\",\"TRAINING_COURSES\":\"" + courses + "\"}}", StdUser.class);
+    }
+
+    private static String json(final StdUser user) throws JsonProcessingException {
+        return mapper.writeValueAsString(user);
+    }
+
+    @Test
+    public void putGetTest() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        try (MappedUserStore store = MappedUserStore.open(directory)) {
+            final StdUser user = user("user-1", "#3:DEV5:ADMIN", "[\\\"COURSE1\\\"]");
+            store.put(user);
+            assertEquals("stored user should read back with the same json", json(user), json(store.get("user-1").get()));
+            assertTrue("roles should decode from the mapped record", store.getUserWithRoles("user-1").get().hasRoles(Role.DEV, Role.ADMIN));
+            assertTrue("courses should decode from the mapped record", store.getUserWithTrainingCompleted("user-1").get().hasCompleted(TrainingCourse.COURSE1));
+            assertFalse("unknown users should be absent", store.get("user-2").isPresent());
+        }
+    }
+
+    @Test
+    public void reopenTest() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        try (MappedUserStore store = MappedUserStore.open(directory)) {
+            store.put(user("user-1", "#3:DEV", "#7:COURSE1"));
+            store.put(user("user-2", "#4:USER", "#7:COURSE2"));
+            store.delete("user-2");
+        }
+        try (MappedUserStore store = MappedUserStore.open(directory)) {
+            assertEquals("index should be loaded on open", 1, store.size());
+            assertTrue("live user should survive a reopen", store.getUserWithRoles("user-1").get().hasRole(Role.DEV));
+            assertFalse("deleted user should stay deleted", store.contains("user-2"));
+            store.put(user("user-3", "#5:ADMIN", "#7:COURSE3")); // appended after the checkpoint
+            store.flush();
+        }
+        Files.delete(directory.resolve(MappedUserStore.INDEX_FILE));
+        try (MappedUserStore store = MappedUserStore.open(directory)) {
+            assertEquals("a missing index should be rebuilt from the log", 2, store.size());
+            assertTrue("tail record should be found by the scan", store.getUserWithRoles("user-3").get().hasRole(Role.ADMIN));
+        }
+    }
+
+    @Test
+    public void segmentBoundaryTest() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        final List<StdUser> users = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            users.add(user("user-" + i, "#3:DEV", "#7:COURSE" + (i % 3 + 1)));
+        }
+        try (MappedUserStore store = MappedUserStore.open(directory, 256)) {
+            store.putAll(users);
+            for (final StdUser user : users) {
+                assertEquals("record should not span segments", json(user), json(store.get(user.userId).get()));
+            }
+        }
+        Files.delete(directory.resolve(MappedUserStore.INDEX_FILE));
+        try (MappedUserStore store = MappedUserStore.open(directory, 256)) {
+            assertEquals("scan should skip segment padding", users.size(), store.size());
+        }
+    }
+
+    @Test
+    public void tornTailTest() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        try (MappedUserStore store = MappedUserStore.open(directory, 1024)) {
+            store.put(user("user-1", "#3:DEV", "#7:COURSE1"));
+            store.checkpoint();
+            store.put(user("user-2", "#3:DEV", "#7:COURSE1"));
+            store.flush();
+        }
+        Files.delete(directory.resolve(MappedUserStore.INDEX_FILE));
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve(MappedUserStore.LOG_FILE).toFile(), "rw")) {
+            final int secondRecord = 9 + file.readInt(); // header of the first record plus its payload
+            file.seek(secondRecord + 12);
+            file.write(0x7F); // corrupt the second payload
+        }
+        try (MappedUserStore store = MappedUserStore.open(directory, 1024)) {
+            assertTrue("records before the torn one should be kept", store.contains("user-1"));
+            assertFalse("torn record should be dropped", store.contains("user-2"));
+            store.put(user("user-3", "#3:DEV", "#7:COURSE1"));
+            assertTrue("appends should overwrite the torn tail", store.contains("user-3"));
+        }
+    }
+
+    @Test
+    public void compactTest() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        try (MappedUserStore store = MappedUserStore.open(directory, 4096)) {
+            for (int round = 0; round < 10; round++) {
+                for (int i = 0; i < 20; i++) {
+                    store.put(user("user-" + i, round % 2 == 0 ? "#3:DEV" : "#5:ADMIN", "#7:COURSE1"));
+                }
+            }
+            store.delete("user-0");
+            final Set<String> userIds = store.userIds();
+            assertTrue("replaced records should count as waste", store.wasteRatio() > 0.8);
+            final long before = Files.size(directory.resolve(MappedUserStore.LOG_FILE));
+            assertTrue("a wasteful log should be compacted", store.compactIfWasteful(0.5));
+            assertTrue("compaction should shrink the log", Files.size(directory.resolve(MappedUserStore.LOG_FILE)) < before);
+            assertEquals("compaction should leave no waste", 0.0, store.wasteRatio(), 0.0);
+            assertEquals("live users should be kept", 19, store.size());
+            store.put(user("user-21", "#4:USER", "#7:COURSE2"));
+            store.delete("user-19");
+            assertTrue("the id view should follow the compacted log", userIds.contains("user-21") && !userIds.contains("user-19"));
+            assertEquals("the id view should follow the compacted log", 19, userIds.size());
+            store.delete("user-21");
+            store.put(user("user-19", "#3:DEV", "#7:COURSE1"));
+            assertTrue("latest version should be kept", store.getUserWithRoles("user-1").get().hasRole(Role.ADMIN));
+            store.put(user("user-20", "#4:USER", "#7:COURSE2"));
+        }
+        try (MappedUserStore store = MappedUserStore.open(directory, 4096)) {
+            assertEquals("compacted store should reopen", 20, store.size());
+            assertFalse("deleted user should not be resurrected", store.contains("user-0"));
+            assertTrue("appends after compaction should be kept", store.getUserWithRoles("user-20").get().hasRole(Role.USER));
+        }
+    }
+
+    @Test
+    public void periodicCompactionFailureTest() throws IOException, InterruptedException {
+        final Path directory = folder.getRoot().toPath();
+        try (MappedUserStore store = MappedUserStore.open(directory, 4096)) {
+            for (int i = 0; i < 20; i++) {
+                store.put(user("user-1", i % 2 == 0 ? "#3:DEV" : "#5:ADMIN", "#7:COURSE1"));
+            }
+            final Path blocker = Files.createDirectories(directory.resolve("users.log.compact").resolve("blocker"));
+            store.compactPeriodically(Duration.ofMillis(10), 0.5);
+            final long deadline = System.currentTimeMillis() + 5_000;
+            while (store.compactionFailures() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue("compaction should be retried after a failure", store.compactionFailures() >= 2);
+            assertNotNull("the failure should be kept", store.lastCompactionFailure());
+
+            Files.delete(blocker);
+            while (store.wasteRatio() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("compaction should succeed once the failure is gone", 0.0, store.wasteRatio(), 0.0);
+        }
+    }
+
+    @Test
+    public void longUserIdTest() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        final StringBuilder userId = new StringBuilder();
+        for (int i = 0; i < 16_000; i++) {
+            userId.appendCodePoint(0x1F600); // 4 bytes of UTF-8, 6 of the modified UTF-8 writeUTF uses
+        }
+        try (MappedUserStore store = MappedUserStore.open(directory)) {
+            store.put(user(userId.toString(), "#3:DEV", "#7:COURSE1"));
+        }
+        try (MappedUserStore store = MappedUserStore.open(directory)) {
+            assertTrue("a long id should survive the index", store.getUserWithRoles(userId.toString()).get().hasRole(Role.DEV));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.builder.userexample.store;
+
+import com.builder.userexample.client.Role;
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.stream.UserNdjsonReader;
+import com.builder.userexample.stream.UserNdjsonWriter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class UserWriteBehindTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Duration LONG_WINDOW = Duration.ofHours(1);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static StdUser user(final String userId, final String roles) throws JsonProcessingException {
+        return mapper.readValue("{\"user_id\":\"" + userId + "\",\"attributes\":{\"ROLES\":\"" + roles + "\"}}", StdUser.class);
+    }
+
+    /**
+     * Collects the batches it receives
+     */
+    private static final class CollectingSink implements UserSink {
+        final List<List<StdUser>> batches = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void write(final List<StdUser> batch) {
+            batches.add(new ArrayList<>(batch));
+        }
+
+        List<String> ids(final int batch) {
+            return batches.get(batch).stream().map(user -> user.userId).collect(toList());
+        }
+
+        void await(final int count) throws InterruptedException {
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (batches.size() < count) {
+                if (System.nanoTime() > deadline) {
+                    fail("Expected " + count + " batches, got " + batches.size());
+                }
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    @Test
+    public void coalesceTest() throws IOException, InterruptedException {
+        final CollectingSink sink = new CollectingSink();
+        try (UserWriteBehind writeBehind = UserWriteBehind.create(sink, 10, 100, LONG_WINDOW)) {
+            writeBehind.submit(user("user-1", "#3:DEV"));
+            writeBehind.submit(user("user-2", "#3:DEV"));
+            writeBehind.submit(user("user-1", "#5:ADMIN"));
+            assertEquals("Updates not coalesced", 2, writeBehind.pending());
+
+            writeBehind.flush();
+            assertEquals("Flush should write one batch", 1, sink.batches.size());
+            assertEquals("First update order not kept", Arrays.asList("user-1", "user-2"), sink.ids(0));
+            assertTrue("Latest version not written", sink.batches.get(0).get(0).sameAttributes(user("user-1", "#5:ADMIN")));
+            assertEquals("Coalesced count", 1, writeBehind.stats().coalesced);
+        }
+    }
+
+    @Test
+    public void batchTest() throws IOException, InterruptedException {
+        final CollectingSink sink = new CollectingSink();
+        try (UserWriteBehind writeBehind = UserWriteBehind.create(sink, 2, 10, LONG_WINDOW)) {
+            for (int i = 0; i < 5; i++) {
+                writeBehind.submit(user("user-" + i, "#3:DEV"));
+            }
+            sink.await(2);
+            assertEquals("Full batches should be written without waiting for the window", Arrays.asList("user-0", "user-1"), sink.ids(0));
+            assertEquals("Partial batch should wait for the window", 1, writeBehind.pending());
+        }
+        assertEquals("Close should write the rest", Collections.singletonList("user-4"), sink.ids(2));
+    }
+
+    @Test
+    public void windowTest() throws IOException, InterruptedException {
+        final CollectingSink sink = new CollectingSink();
+        try (UserWriteBehind writeBehind = UserWriteBehind.create(sink, 100, 100, Duration.ofMillis(20))) {
+            writeBehind.submit(user("user-1", "#3:DEV"));
+            sink.await(1);
+            assertEquals("Window should flush a partial batch", Collections.singletonList("user-1"), sink.ids(0));
+        }
+    }
+
+    @Test
+    public void backPressureTest() throws IOException, InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CollectingSink collected = new CollectingSink();
+        final UserSink sink = batch -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            collected.write(batch);
+        };
+        try (UserWriteBehind writeBehind = UserWriteBehind.create(sink, 1, 1, LONG_WINDOW)) {
+            writeBehind.submit(user("user-1", "#3:DEV"));
+            assertTrue("Flusher should take the full batch", writing.await(5, TimeUnit.SECONDS));
+            writeBehind.submit(user("user-2", "#3:DEV"));
+            assertFalse("A full queue should refuse new users", writeBehind.offer(user("user-3", "#3:DEV"), Duration.ofMillis(20)));
+            assertTrue("A full queue should still coalesce", writeBehind.offer(user("user-2", "#5:ADMIN"), Duration.ZERO));
+            release.countDown();
+        }
+        assertEquals("Every accepted user should be written", 2, collected.batches.size());
+    }
+
+    @Test
+    public void failureTest() throws IOException, InterruptedException {
+        final AtomicBoolean failing = new AtomicBoolean(true);
+        final CollectingSink collected = new CollectingSink();
+        final UserSink sink = batch -> {
+            if (failing.get()) {
+                throw new IOException("sink unavailable");
+            }
+            collected.write(batch);
+        };
+        try (UserWriteBehind writeBehind = UserWriteBehind.create(sink, 10, 10, LONG_WINDOW)) {
+            writeBehind.submit(user("user-1", "#3:DEV"));
+            writeBehind.submit(user("user-2", "#3:DEV"));
+            try {
+                writeBehind.flush();
+                fail("Sink failure not reported");
+            } catch (IOException expected) {
+                assertEquals("Failed batch should stay queued", 2, writeBehind.pending());
+            }
+            writeBehind.submit(user("user-3", "#3:DEV"));
+            failing.set(false);
+            writeBehind.flush();
+            assertEquals("Retried batch should keep its order", Arrays.asList("user-1", "user-2", "user-3"), collected.ids(0));
+            assertEquals("Failure count", 1, writeBehind.stats().failures);
+        }
+    }
+
+    /**
+     * The flusher waits out a failure without the write lock, so a caller can flush in the meantime.
+     */
+    @Test
+    public void flushDuringRetryTest() throws Exception {
+        final AtomicBoolean failing = new AtomicBoolean(true);
+        final CollectingSink collected = new CollectingSink();
+        final UserSink sink = batch -> {
+            if (failing.getAndSet(false)) {
+                throw new IOException("sink unavailable");
+            }
+            collected.write(batch);
+        };
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (UserWriteBehind writeBehind = UserWriteBehind.create(sink, 1, 10, LONG_WINDOW)) {
+            writeBehind.submit(user("user-1", "#3:DEV"));
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (writeBehind.stats().failures == 0) {
+                assertTrue("Flusher did not write", System.nanoTime() < deadline);
+                Thread.sleep(5);
+            }
+            executor.submit(() -> {
+                writeBehind.flush();
+                return null;
+            }).get(5, TimeUnit.SECONDS);
+            assertEquals("Flush did not write the failed batch", Collections.singletonList("user-1"), collected.ids(0));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sinkTest() throws IOException, InterruptedException {
+        final Path directory = folder.getRoot().toPath();
+        final Path file = directory.resolve("users.ndjson");
+        try (MappedUserStore store = MappedUserStore.open(directory.resolve("store"))) {
+            try (UserWriteBehind toStore = UserWriteBehind.create(UserSink.store(store), 10, 10, LONG_WINDOW);
+                 UserWriteBehind toFile = UserWriteBehind.create(UserSink.ndjson(UserNdjsonWriter.open(file)), 10, 10, LONG_WINDOW)) {
+                for (final String roles : new String[]{"#3:DEV", "#5:ADMIN"}) {
+                    toStore.submit(user("user-1", roles));
+                    toFile.submit(user("user-1", roles));
+                }
+            }
+            assertTrue("Store sink should hold the latest version", store.getUserWithRoles("user-1").get().hasRole(Role.ADMIN));
+        }
+        try (UserNdjsonReader<StdUser> reader = UserNdjsonReader.open(file, StdUser.class)) {
+            assertEquals("File sink should hold one coalesced record", 1, reader.stream().count());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.builder.userexample.stream;
+
+import com.builder.userexample.client.UserWithRoles;
+import com.builder.userexample.domain.StdUser;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class UserBatchConverterTest {
+
+    @Test
+    public void inputOrderTest() {
+        final List<StdUser> users = IntStream.range(0, 1000).mapToObj(i -> StdUser.create("user-" + i)).collect(toList());
+
+        try (UserBatchConverter converter = UserBatchConverter.create(4, 7, 3)) {
+            final List<String> userIds = converter.convert(users, UserWithRoles::create).stream().map(user -> user.userId).collect(toList());
+            assertEquals("Results not in input order", users.stream().map(user -> user.userId).collect(toList()), userIds);
+        }
+    }
+
+    /**
+     * Only {@code maxChunksInFlight} chunks may be pulled from the source ahead of the consumer.
+     */
+    @Test
+    public void backPressureTest() {
+        final AtomicInteger pulled = new AtomicInteger();
+        final Stream<StdUser> source = Stream.iterate(0, i -> i + 1).peek(i -> pulled.incrementAndGet()).map(i -> StdUser.create("user-" + i));
+
+        try (UserBatchConverter converter = UserBatchConverter.create(2, 10, 2)) {
+            final List<UserWithRoles> first = converter.convert(source, UserWithRoles::create).limit(5).collect(toList());
+            assertEquals("Not enough results", 5, first.size());
+            assertTrue("Source read too far ahead: " + pulled.get(), pulled.get() <= 30);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void conversionFailureTest() {
+        try (UserBatchConverter converter = UserBatchConverter.create(2, 4, 2)) {
+            converter.convert(Stream.of(StdUser.create("bad")), user -> {
+                throw new IllegalStateException("conversion failed");
+            }).count();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.builder.userexample.stream;
+
+import com.builder.userexample.client.UserWithRoles;
+import com.builder.userexample.client.UserWithTrainingCompleted;
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.domain.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(JUnit4.class)
+public class UserDedupTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static StdUser user(final String userId, final String roles) throws JsonProcessingException {
+        return mapper.readValue("{\"user_id\":\"" + userId + "\",\"attributes\":{\"ROLES\":\"" + roles + "\"}}", StdUser.class);
+    }
+
+    @Test
+    public void distinctTest() throws JsonProcessingException {
+        final List<StdUser> users = new ArrayList<>();
+        for (int copy = 0; copy < 3; copy++) {
+            for (int i = 0; i < 1000; i++) {
+                users.add(user("user-" + i, i % 2 == 0 ? "#3:DEV" : "#5:ADMIN"));
+            }
+        }
+        users.add(user("user-0", "#5:ADMIN")); // same id, different attributes
+
+        final List<StdUser> distinct = UserDedup.distinct(users);
+        assertEquals("Duplicates not removed", 1001, distinct.size());
+        assertSame("First occurrence not kept", users.get(0), distinct.get(0));
+        assertEquals("Encounter order not kept", "user-999", distinct.get(999).userId);
+    }
+
+    @Test
+    public void distinctViewsTest() throws JsonProcessingException {
+        final List<UserWithRoles> users = Arrays.asList(
+                UserWithRoles.create("user-1").withRoles("DEV", "ADMIN"),
+                UserWithRoles.create("user-1").withRoles("ADMIN", "DEV"),
+                UserWithRoles.create(user("user-1", "#3:DEV5:ADMIN")),
+                UserWithRoles.create("user-2").withRoles("DEV"));
+
+        assertEquals("Views with the same roles in any encoding are duplicates", 2, UserDedup.distinct(users).size());
+    }
+
+    @Test
+    public void distinctMixedTypesTest() throws JsonProcessingException {
+        final StdUser stdUser = mapper.readValue("{\"user_id\":\"user-1\",\"attributes\":{\"TRAINING_COURSES\":\"#7:COURSE1\"}}", StdUser.class);
+        final List<User> users = Arrays.asList(UserWithTrainingCompleted.create(stdUser), stdUser, UserWithRoles.create(stdUser));
+
+        assertEquals("A view and the StdUser it wraps are not duplicates", 3, UserDedup.distinct(users).size());
+    }
+
+    @Test
+    public void latestPerUserTest() throws JsonProcessingException {
+        final List<StdUser> latest = UserDedup.latestPerUser(Arrays.asList(
+                user("user-1", "#3:DEV"), user("user-2", "#3:DEV"), user("user-1", "#5:ADMIN")));
+
+        assertEquals("Order of first appearance not kept", Arrays.asList("user-1", "user-2"), latest.stream().map(user -> user.userId).collect(toList()));
+        assertEquals("Latest version not kept", user("user-1", "#5:ADMIN"), latest.get(0));
+    }
+}
@@ -0,0 +1,68 @@
+package com.builder.userexample.stream;
+
+import com.builder.userexample.client.UserWithRoles;
+import com.builder.userexample.client.UserWithTrainingCompleted;
+import com.builder.userexample.domain.StdUser;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(JUnit4.class)
+public class UserNdjsonTest {
+
+    private static final String stdUsers =
+            "{\"user_id\":\"user-1\",\"attributes\":{\"ROLES\":\"[\\\"DEV\\\"]\"}}\n" +
+            "{\"user_id\":\"user-2\",\"attributes\":{\"ROLES\":\"[\\\"ADMIN\\\"]\"}}\n";
+
+    @Test
+    public void writeTest() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (UserNdjsonWriter writer = UserNdjsonWriter.open(out)) {
+            writer.write(UserWithRoles.create("user-1").withRoles("DEV"))
+                    .write(UserWithRoles.create("user-2").withRoles("ADMIN"));
+        }
+
+        assertEquals("NDJSON output not as expected",
+                "{\"userWithRoles\":{\"user_id\":\"user-1\",\"attributes\":{\"ROLES\":\"[\\\"DEV\\\"]\"}}}\n" +
+                "{\"userWithRoles\":{\"user_id\":\"user-2\",\"attributes\":{\"ROLES\":\"[\\\"ADMIN\\\"]\"}}}\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void envelopeRoundTripTest() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (UserNdjsonWriter writer = UserNdjsonWriter.open(out)) {
+            writer.writeAll(Arrays.asList(
+                    UserWithTrainingCompleted.create("user-1").withTrainingCourses("COURSE1"),
+                    UserWithTrainingCompleted.create("user-2").withTrainingCourses("COURSE2", "COURSE3")));
+        }
+
+        try (UserNdjsonReader<UserWithTrainingCompleted> reader = UserNdjsonReader.open(new ByteArrayInputStream(out.toByteArray()), UserWithTrainingCompleted.class)) {
+            assertEquals("First record not read", Arrays.asList("COURSE1"), reader.next().getTrainingCompleted());
+            assertEquals("Second record not read", Arrays.asList("COURSE2", "COURSE3"), reader.next().getTrainingCompleted());
+            assertFalse("Unexpected trailing record", reader.hasNext());
+        }
+    }
+
+    @Test
+    public void lazyConversionTest() throws IOException {
+        try (Stream<UserWithRoles> users = UserNdjsonReader.open(new ByteArrayInputStream(stdUsers.getBytes(StandardCharsets.UTF_8)), StdUser.class)
+                .stream()
+                .map(UserWithRoles::create)) {
+            final List<String> roles = users.map(user -> user.userId + ":" + user.roles.get(0)).collect(toList());
+            assertEquals("Conversion from StdUser records failed", Arrays.asList("user-1:DEV", "user-2:ADMIN"), roles);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.builder.userexample.web;
+
+import com.builder.userexample.client.Role;
+import com.builder.userexample.client.TrainingCourse;
+import com.builder.userexample.domain.StdUser;
+import com.builder.userexample.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class UserControllerTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private UserRepository repository;
+    private UserController controller;
+
+    private static StdUser user(final String userId, final String roles, final String courses) throws JsonProcessingException {
+        return mapper.readValue("{\"user_id\":\"" + userId + "\",\"attributes\":{\"ROLES\":\"" + roles + "\",\"TRAINING_COURSES\":\"" + courses + "\"}}", StdUser.class);
+    }
+
+    private static List<String> ids(final List<StdUser> users) {
+        return users.stream().map(user -> user.userId).sorted().collect(toList());
+    }
+
+    @Before
+    public void setUp() throws JsonProcessingException {
+        repository = new UserRepository();
+        controller = new UserController(repository, Runnable::run);
+        repository.save(user("admin", "#5:ADMIN", "#7:COURSE1"));
+        repository.save(user("dev", "#3:DEV", "#7:COURSE17:COURSE2"));
+    }
+
+    @Test
+    public void getTest() {
+        assertEquals("User not returned", "admin", controller.get("admin").join().userId);
+        assertEquals("Roles view not returned", Arrays.asList("DEV"), controller.getWithRoles("dev").join().roles);
+    }
+
+    @Test
+    public void notFoundTest() {
+        try {
+            controller.get("missing").join();
+            fail("Missing user should fail");
+        } catch (CompletionException e) {
+            assertEquals("Wrong status", HttpStatus.NOT_FOUND, ((ResponseStatusException) e.getCause()).getStatus());
+        }
+    }
+
+    @Test
+    public void upsertTest() throws JsonProcessingException {
+        assertEquals("Insert should create", HttpStatus.CREATED, controller.upsert("new", user("new", "#4:USER", "#")).join().getStatusCode());
+        assertEquals("Replace should be ok", HttpStatus.OK, controller.upsert("new", user("new", "#5:ADMIN", "#")).join().getStatusCode());
+        assertEquals("Index not updated", Arrays.asList("admin", "new"), ids(controller.query(Collections.singletonList(Role.ADMIN), null).join()));
+    }
+
+    @Test(expected = ResponseStatusException.class)
+    public void upsertMismatchTest() throws JsonProcessingException {
+        controller.upsert("other", user("new", "#4:USER", "#"));
+    }
+
+    @Test
+    public void queryTest() {
+        assertEquals("Course query failed", Arrays.asList("admin", "dev"), ids(controller.query(null, Collections.singletonList(TrainingCourse.COURSE1)).join()));
+        assertEquals("Combined query failed", Arrays.asList("dev"),
+                ids(controller.query(Collections.singletonList(Role.DEV), Collections.singletonList(TrainingCourse.COURSE1)).join()));
+    }
+
+    @Test
+    public void bulkGetTest() {
+        assertEquals("Bulk lookup failed", Arrays.asList("dev", "admin"),
+                controller.bulkGet(Arrays.asList("dev", "missing", "admin")).join().stream().map(user -> user.userId).collect(toList()));
+    }
+
+    @Test
+    public void exportTest() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        controller.export().writeTo(out);
+
+        assertEquals("Every user should be exported on its own line", 2, out.toString(StandardCharsets.UTF_8).split("\n").length);
+    }
+}